@@ -516,7 +516,76 @@ function Home() {
     }
   }, [serverAddress, setIsLoading, setTaskIdComplete /* setResponse is passed as arg */]);
 
+  // Shows the progress from a status object; returns true once the task is finished.
+  const handleTaskStatus = useCallback(async (taskId, statusData, setResponse) => {
+    const { status, message, removalReasons, currentProgress, totalProgressSteps, progressMessage: progressMessageText } = statusData;
+    setRemovalReasons(removalReasons);
+    setTaskProgress({
+      current: currentProgress || 0,
+      total: totalProgressSteps || 100,
+      message: progressMessageText || "Processing...",
+    });
+
+    if (status === "FAILED") {
+      console.error("FAILED:", message);
+      console.error("FAILED REASONS:", removalReasons);
+      setResponse({
+        error: message || "Task failed with no additional message.",
+      });
+      setServerError(message);
+      setIsLoading(false);
+      return true;
+    }
+
+    if (status === "COMPLETED") {
+      // Pass setResponse to fetchTaskResult if it's not already part of its closure
+      // or if fetchTaskResult is not using a local setResponse from its own scope.
+      // In this case, fetchTaskResult takes setResponse as an argument.
+      await fetchTaskResult(taskId, setResponse);
+      return true;
+    }
+    return false;
+  }, [fetchTaskResult, setRemovalReasons, setIsLoading, setServerError /* setResponse is passed as arg */]);
+
+  // Follows the task through its event stream; resolves to false if the stream is unavailable
+  // before the task finishes, so that the caller can fall back to polling.
+  const watchTaskEvents = useCallback((taskId, setResponse) => new Promise((resolve) => {
+    if (typeof EventSource === "undefined") {
+      resolve(false);
+      return;
+    }
+
+    const source = new EventSource(`${serverAddress}/${taskId}/events`);
+    let finished = false;
+    const onStatus = async (event) => {
+      if (finished) {
+        return;
+      }
+      const statusData = JSON.parse(event.data);
+      if (statusData.status === "COMPLETED" || statusData.status === "FAILED") {
+        finished = true;
+        source.close();
+      }
+      if (await handleTaskStatus(taskId, statusData, setResponse)) {
+        resolve(true);
+      }
+    };
+    source.addEventListener("status", onStatus);
+    source.addEventListener("progress", onStatus);
+    source.onerror = () => {
+      if (!finished) {
+        finished = true;
+        source.close();
+        resolve(false);
+      }
+    };
+  }), [serverAddress, handleTaskStatus]);
+
   const pollTaskStatus = useCallback(async (taskId, pollInterval, setResponse) => {
+    if (await watchTaskEvents(taskId, setResponse)) {
+      return;
+    }
+
     while (true) {
       const statusResponse = await fetch(`${serverAddress}/${taskId}/status`, {
         method: "GET",
@@ -529,37 +598,14 @@ function Home() {
       }
 
       const statusData = await statusResponse.json();
-      const { status, message, removalReasons, currentProgress, totalProgressSteps, progressMessage: progressMessageText } = statusData;
-      setRemovalReasons(removalReasons);
-      setTaskProgress({
-        current: currentProgress || 0,
-        total: totalProgressSteps || 100,
-        message: progressMessageText || "Processing...",
-      });
-
-      if (status === "FAILED") {
-        console.error("FAILED:", message);
-        console.error("FAILED REASONS:", removalReasons);
-        setResponse({
-          error: message || "Task failed with no additional message.",
-        });
-        setServerError(message);
-        setIsLoading(false);
-        return;
-      }
-
-      if (status === "COMPLETED") {
-        // Pass setResponse to fetchTaskResult if it's not already part of its closure
-        // or if fetchTaskResult is not using a local setResponse from its own scope.
-        // In this case, fetchTaskResult takes setResponse as an argument.
-        await fetchTaskResult(taskId, setResponse);
+      if (await handleTaskStatus(taskId, statusData, setResponse)) {
         return;
       }
 
       // If still processing, wait and try again
       await new Promise((resolve) => setTimeout(resolve, pollInterval));
     }
-  }, [serverAddress, fetchTaskResult, setRemovalReasons, setIsLoading, setServerError /* setResponse is passed as arg */]);
+  }, [serverAddress, watchTaskEvents, handleTaskStatus]);
 
   const handleSendData = useCallback(async (taskIdFromUrl = "") => {
     const POLL_INTERVAL = 1000;
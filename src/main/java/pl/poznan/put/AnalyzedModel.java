@@ -1,7 +1,11 @@
 package pl.poznan.put;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -16,7 +20,61 @@ import pl.poznan.put.structure.AnalyzedBasePair;
 import pl.poznan.put.structure.ImmutableAnalyzedBasePair;
 import pl.poznan.put.structure.ImmutableBasePair;
 
-public record AnalyzedModel(String name, PdbModel structure3D, BaseInteractions structure2D) {
+/**
+ * A 3D model together with its 2D analysis. The base pairs and stackings are converted to {@link
+ * AnalyzedBasePair} objects once, when the model is created, and the resulting unmodifiable lists
+ * are shared by every consumer. Residues are looked up through a hash index of the 3D model
+ * instead of a scan of its residue list.
+ */
+public final class AnalyzedModel {
+  private final String name;
+  private final PdbModel structure3D;
+  private final BaseInteractions structure2D;
+  private final Map<ResidueKey, IndexedResidue> residueIndex;
+  private final List<AnalyzedBasePair> canonicalBasePairs;
+  private final List<AnalyzedBasePair> nonCanonicalBasePairs;
+  private final List<AnalyzedBasePair> stackings;
+  private final List<AnalyzedBasePair> basePairsAndStackings;
+
+  public AnalyzedModel(String name, PdbModel structure3D, BaseInteractions structure2D) {
+    this.name = name;
+    this.structure3D = structure3D;
+    this.structure2D = structure2D;
+
+    this.residueIndex = new HashMap<>();
+    for (PdbResidue residue : structure3D.residues()) {
+      // The first residue wins, as in a scan of the residue list
+      residueIndex.putIfAbsent(
+          ResidueKey.of(residue), new IndexedResidue(residue, residue.namedResidueIdentifier()));
+    }
+
+    var canonical = new ArrayList<AnalyzedBasePair>();
+    var nonCanonical = new ArrayList<AnalyzedBasePair>();
+    for (BasePair basePair : structure2D.basePairs()) {
+      (basePair.isCanonical() ? canonical : nonCanonical).add(basePairToAnalyzed(basePair));
+    }
+    this.canonicalBasePairs = List.copyOf(canonical);
+    this.nonCanonicalBasePairs = List.copyOf(nonCanonical);
+    this.stackings = structure2D.stackings().stream().map(this::stackingToAnalyzed).toList();
+
+    var all = new ArrayList<AnalyzedBasePair>(canonical);
+    all.addAll(nonCanonical);
+    all.addAll(stackings);
+    this.basePairsAndStackings = List.copyOf(all);
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public PdbModel structure3D() {
+    return structure3D;
+  }
+
+  public BaseInteractions structure2D() {
+    return structure2D;
+  }
+
   public Stream<AnalyzedBasePair> streamBasePairs(final ConsensusMode mode) {
     return switch (mode) {
       case CANONICAL -> canonicalBasePairs().stream();
@@ -34,30 +92,19 @@ public record AnalyzedModel(String name, PdbModel structure3D, BaseInteractions
   }
 
   public List<AnalyzedBasePair> basePairsAndStackings() {
-    var result = new ArrayList<>(canonicalBasePairs());
-    result.addAll(nonCanonicalBasePairs());
-    result.addAll(stackings());
-    return result;
+    return basePairsAndStackings;
   }
 
   public List<AnalyzedBasePair> canonicalBasePairs() {
-    return structure2D.basePairs().stream()
-        .filter(BasePair::isCanonical)
-        .map(this::basePairToAnalyzed)
-        .collect(Collectors.toList());
+    return canonicalBasePairs;
   }
 
   public List<AnalyzedBasePair> nonCanonicalBasePairs() {
-    return structure2D.basePairs().stream()
-        .filter(basePair -> !basePair.isCanonical())
-        .map(this::basePairToAnalyzed)
-        .collect(Collectors.toList());
+    return nonCanonicalBasePairs;
   }
 
   public List<AnalyzedBasePair> stackings() {
-    return structure2D.stackings().stream()
-        .map(this::stackingToAnalyzed)
-        .collect(Collectors.toList());
+    return stackings;
   }
 
   public AnalyzedBasePair basePairToAnalyzed(BasePair basePair) {
@@ -93,11 +140,24 @@ public record AnalyzedModel(String name, PdbModel structure3D, BaseInteractions
             .residueNumber(auth.number())
             .insertionCode(auth.icode())
             .build();
-    return findResidue(identifier).namedResidueIdentifier();
+    return findNamedResidue(identifier);
   }
 
   public PdbResidue findResidue(ChainNumberICode query) {
-    return structure3D().findResidue(query);
+    IndexedResidue indexed = residueIndex.get(ResidueKey.of(query));
+    // Unknown residues are left to the model, which reports them the usual way
+    return indexed != null ? indexed.residue() : structure3D().findResidue(query);
+  }
+
+  /**
+   * @param query The chain, number and insertion code of a residue.
+   * @return The named identifier of the residue.
+   */
+  public PdbNamedResidueIdentifier findNamedResidue(ChainNumberICode query) {
+    IndexedResidue indexed = residueIndex.get(ResidueKey.of(query));
+    return indexed != null
+        ? indexed.namedIdentifier()
+        : structure3D().findResidue(query).namedResidueIdentifier();
   }
 
   public int modelNumber() {
@@ -107,4 +167,36 @@ public record AnalyzedModel(String name, PdbModel structure3D, BaseInteractions
   public List<PdbNamedResidueIdentifier> residueIdentifiers() {
     return structure3D().namedResidueIdentifiers();
   }
+
+  private record ResidueKey(String chain, int number, Optional<String> insertionCode) {
+    static ResidueKey of(ChainNumberICode residue) {
+      return new ResidueKey(
+          residue.chainIdentifier(), residue.residueNumber(), residue.insertionCode());
+    }
+  }
+
+  private record IndexedResidue(PdbResidue residue, PdbNamedResidueIdentifier namedIdentifier) {}
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof AnalyzedModel that)) {
+      return false;
+    }
+    return Objects.equals(name, that.name)
+        && Objects.equals(structure3D, that.structure3D)
+        && Objects.equals(structure2D, that.structure2D);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, structure3D, structure2D);
+  }
+
+  @Override
+  public String toString() {
+    return "AnalyzedModel[name=" + name + "]";
+  }
 }
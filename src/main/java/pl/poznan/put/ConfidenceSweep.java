@@ -0,0 +1,147 @@
+package pl.poznan.put;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Scores models against the consensus for every confidence level of a task in one pass. In
+ * threshold mode the consensus sets of successive levels are nested: lowering the level by one
+ * only adds interactions found in exactly that many models, and these always lose conflicts
+ * against the interactions already in the set. The sweep therefore starts at the highest level and
+ * updates the confusion matrix of every model as interactions enter the consensus and model sets,
+ * instead of scoring each level from scratch.
+ *
+ * <p>The scores are the ones {@link InteractionScoringEngine} computes in threshold mode.
+ */
+public class ConfidenceSweep {
+  private final Map<ConsensusInteraction, Integer> indices = new HashMap<>();
+  private final int[] targetEntries;
+  private final int[][] modelEntries;
+  private final int[] modelCounts;
+  private final BitSet required;
+  private final BitSet forbidden;
+
+  /**
+   * @param target The consensus set of all models at the lowest confidence level of the sweep.
+   * @param models The consensus set of each model at the lowest confidence level of the sweep.
+   * @param requiredSet Interactions required by the reference structure.
+   * @param forbiddenSet Interactions forbidden by the reference structure.
+   */
+  public ConfidenceSweep(
+      Collection<ConsensusInteraction> target,
+      List<? extends Collection<ConsensusInteraction>> models,
+      Set<ConsensusInteraction> requiredSet,
+      Set<ConsensusInteraction> forbiddenSet) {
+    InteractionMetricsUtils.validateRequiredForbidden(requiredSet, forbiddenSet);
+
+    var interactions = new ArrayList<ConsensusInteraction>();
+    targetEntries = entries(target, interactions);
+    modelEntries = new int[models.size()][];
+    for (int i = 0; i < models.size(); i++) {
+      modelEntries[i] = entries(models.get(i), interactions);
+    }
+    required = bitset(requiredSet, interactions);
+    forbidden = bitset(forbiddenSet, interactions);
+    modelCounts = interactions.stream().mapToInt(ConsensusInteraction::modelCount).toArray();
+  }
+
+  /**
+   * @param minLevel The lowest confidence level, the one the sets were determined for.
+   * @param maxLevel The highest confidence level.
+   * @return The scores of each model at each level, indexed by level minus {@code minLevel} and
+   *     then by model.
+   */
+  public InteractionScoringEngine.Scores[][] sweep(int minLevel, int maxLevel) {
+    int modelCount = modelEntries.length;
+    int[] tp = new int[modelCount];
+    int[] fp = new int[modelCount];
+    int[] fn = new int[modelCount];
+    int[] nextModelEntry = new int[modelCount];
+    int nextTargetEntry = 0;
+    BitSet[] modelSets = new BitSet[modelCount];
+    for (int model = 0; model < modelCount; model++) {
+      modelSets[model] = new BitSet(modelCounts.length);
+    }
+
+    // Without any consensus, only the required interactions are expected
+    BitSet positives = (BitSet) required.clone();
+    positives.andNot(forbidden);
+    Arrays.fill(fn, positives.cardinality());
+
+    var scores = new InteractionScoringEngine.Scores[maxLevel - minLevel + 1][modelCount];
+    for (int level = maxLevel; level >= minLevel; level--) {
+      // Interactions entering the consensus become expected in every model
+      for (; nextTargetEntry < targetEntries.length; nextTargetEntry++) {
+        int interaction = targetEntries[nextTargetEntry];
+        if (modelCounts[interaction] < level) {
+          break;
+        }
+        if (positives.get(interaction) || forbidden.get(interaction)) {
+          continue;
+        }
+        positives.set(interaction);
+        for (int model = 0; model < modelCount; model++) {
+          if (modelSets[model].get(interaction)) {
+            tp[model]++;
+            fp[model]--;
+          } else {
+            fn[model]++;
+          }
+        }
+      }
+
+      for (int model = 0; model < modelCount; model++) {
+        int[] entries = modelEntries[model];
+        for (; nextModelEntry[model] < entries.length; nextModelEntry[model]++) {
+          int interaction = entries[nextModelEntry[model]];
+          if (modelCounts[interaction] < level) {
+            break;
+          }
+          modelSets[model].set(interaction);
+          if (positives.get(interaction)) {
+            tp[model]++;
+            fn[model]--;
+          } else {
+            fp[model]++;
+          }
+        }
+        scores[level - minLevel][model] =
+            InteractionScoringEngine.Scores.of(tp[model], fp[model], fn[model]);
+      }
+    }
+    return scores;
+  }
+
+  /** Indexes the interactions and returns their indices, the most frequent ones first. */
+  private int[] entries(
+      Collection<ConsensusInteraction> interactions, List<ConsensusInteraction> indexed) {
+    return interactions.stream()
+        .distinct()
+        .sorted(Comparator.comparingInt(ConsensusInteraction::modelCount).reversed())
+        .mapToInt(interaction -> indexOf(interaction, indexed))
+        .toArray();
+  }
+
+  private BitSet bitset(
+      Collection<ConsensusInteraction> interactions, List<ConsensusInteraction> indexed) {
+    BitSet bitset = new BitSet();
+    interactions.forEach(interaction -> bitset.set(indexOf(interaction, indexed)));
+    return bitset;
+  }
+
+  private int indexOf(ConsensusInteraction interaction, List<ConsensusInteraction> indexed) {
+    return indices.computeIfAbsent(
+        interaction,
+        key -> {
+          indexed.add(key);
+          return indexed.size() - 1;
+        });
+  }
+}
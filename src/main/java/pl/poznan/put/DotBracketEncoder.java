@@ -0,0 +1,155 @@
+package pl.poznan.put;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes base pairs of a sequence as a dot-bracket structure. Pairs are grouped into stems and
+ * pseudoknot orders are assigned by repeatedly taking the heaviest set of mutually non-crossing
+ * stems (weighted by the number of pairs) as the next order, so the nested part of the structure
+ * gets parentheses and the smallest possible share of pairs ends up in higher orders.
+ */
+public final class DotBracketEncoder {
+  private static final String OPENING = "([{<ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+  private static final String CLOSING = ")]}>abcdefghijklmnopqrstuvwxyz";
+
+  private DotBracketEncoder() {}
+
+  /**
+   * @param length The number of residues.
+   * @param pairs Pairs of 0-based residue indices, in any order. A residue paired more than once
+   *     keeps only its first pair in the order of the 5' partners.
+   * @return The dot-bracket structure, one character per residue.
+   */
+  public static String encode(int length, List<int[]> pairs) {
+    int[] partners = new int[length];
+    Arrays.fill(partners, -1);
+    pairs.stream()
+        .map(pair -> new int[] {Math.min(pair[0], pair[1]), Math.max(pair[0], pair[1])})
+        .sorted((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]))
+        .forEach(
+            pair -> {
+              if (pair[0] != pair[1] && partners[pair[0]] < 0 && partners[pair[1]] < 0) {
+                partners[pair[0]] = pair[1];
+                partners[pair[1]] = pair[0];
+              }
+            });
+
+    char[] structure = new char[length];
+    Arrays.fill(structure, '.');
+    List<Stem> remaining = stems(partners);
+    for (int order = 0; !remaining.isEmpty(); order++) {
+      if (order >= OPENING.length()) {
+        throw new IllegalStateException("Too many pseudoknot orders: " + (order + 1));
+      }
+      boolean[] selected = heaviestNonCrossing(remaining);
+      List<Stem> next = new ArrayList<>();
+      for (int i = 0; i < remaining.size(); i++) {
+        Stem stem = remaining.get(i);
+        if (!selected[i]) {
+          next.add(stem);
+          continue;
+        }
+        for (int k = 0; k < stem.size(); k++) {
+          structure[stem.start() + k] = OPENING.charAt(order);
+          structure[stem.end() - k] = CLOSING.charAt(order);
+        }
+      }
+      remaining = next;
+    }
+    return new String(structure);
+  }
+
+  /** Groups pairs (i, j), (i + 1, j - 1), ... into stems, ordered by their 5' ends. */
+  private static List<Stem> stems(int[] partners) {
+    List<Stem> stems = new ArrayList<>();
+    for (int i = 0; i < partners.length; i++) {
+      int j = partners[i];
+      if (j <= i) {
+        continue;
+      }
+      int size = 1;
+      while (i + size < j - size && partners[i + size] == j - size) {
+        size++;
+      }
+      stems.add(new Stem(i, j, size));
+      i += size - 1;
+    }
+    return stems;
+  }
+
+  /**
+   * Finds the non-crossing subset of stems with the most pairs. Every stem is an arc between two
+   * of the 2m distinct endpoints, so {@code best[l][r]}, the weight of the best subset within
+   * endpoints l..r, either skips the arc starting at l or takes it together with the best subsets
+   * inside and after it, which takes O(m^2) time.
+   */
+  private static boolean[] heaviestNonCrossing(List<Stem> stems) {
+    int m = stems.size();
+    int points = 2 * m;
+    // Endpoints in sequence order, each mapped to its stem and the position of its other end
+    int[][] endpoints = new int[points][];
+    for (int s = 0; s < m; s++) {
+      endpoints[2 * s] = new int[] {stems.get(s).start(), s};
+      endpoints[2 * s + 1] = new int[] {stems.get(s).end(), s};
+    }
+    Arrays.sort(endpoints, (a, b) -> Integer.compare(a[0], b[0]));
+    int[] stemAt = new int[points];
+    int[] otherEnd = new int[points];
+    int[] firstSeen = new int[m];
+    Arrays.fill(firstSeen, -1);
+    for (int p = 0; p < points; p++) {
+      int stem = endpoints[p][1];
+      stemAt[p] = stem;
+      if (firstSeen[stem] < 0) {
+        firstSeen[stem] = p;
+        otherEnd[p] = -1;
+      } else {
+        otherEnd[firstSeen[stem]] = p;
+        otherEnd[p] = firstSeen[stem];
+      }
+    }
+
+    int[][] best = new int[points + 1][points + 1];
+    for (int l = points - 1; l >= 0; l--) {
+      for (int r = l; r < points; r++) {
+        int skip = best[l + 1][r];
+        int end = otherEnd[l];
+        if (end > l && end <= r) {
+          int take = stems.get(stemAt[l]).size() + best[l + 1][end - 1] + best[end + 1][r];
+          best[l][r] = Math.max(skip, take);
+        } else {
+          best[l][r] = skip;
+        }
+      }
+    }
+
+    boolean[] selected = new boolean[m];
+    List<int[]> ranges = new ArrayList<>();
+    ranges.add(new int[] {0, points - 1});
+    while (!ranges.isEmpty()) {
+      int[] range = ranges.remove(ranges.size() - 1);
+      int l = range[0];
+      int r = range[1];
+      if (l > r) {
+        continue;
+      }
+      int end = otherEnd[l];
+      // Ties prefer taking the stem, so among equally heavy subsets the 5' stems are nested
+      if (end > l
+          && end <= r
+          && best[l][r] == stems.get(stemAt[l]).size() + best[l + 1][end - 1] + best[end + 1][r]) {
+        selected[stemAt[l]] = true;
+        ranges.add(new int[] {l + 1, end - 1});
+        ranges.add(new int[] {end + 1, r});
+      } else {
+        ranges.add(new int[] {l + 1, r});
+      }
+    }
+    return selected;
+  }
+
+  /** Pairs (start, end), (start + 1, end - 1), ..., (start + size - 1, end - size + 1). */
+  private record Stem(int start, int end, int size) {}
+}
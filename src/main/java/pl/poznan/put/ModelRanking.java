@@ -0,0 +1,120 @@
+package pl.poznan.put;
+
+/**
+ * Ranks models by their INF score, higher first. The models are sorted once with a stable merge
+ * sort over primitive arrays and ranks are assigned in a single sweep, so ranking takes O(n log n)
+ * time regardless of the number of ties.
+ *
+ * <p>Models whose INF is within the tolerance of the first model of their group are tied. With the
+ * F1 tie-break, each such group is sorted again by F1 and split where F1 differs by more than the
+ * tolerance, so a model with slightly lower INF but better F1 is ranked first.
+ */
+public class ModelRanking {
+  /** How ranks of tied models are assigned. */
+  public enum Method {
+    /** Tied models share the best rank and the following ranks are skipped ("1224"). */
+    COMPETITION,
+    /** Tied models share the best rank and the following rank is the next integer ("1223"). */
+    DENSE
+  }
+
+  private final Method method;
+  private final double tolerance;
+  private final boolean f1TieBreak;
+
+  /**
+   * @param method The way of assigning ranks to tied models.
+   * @param tolerance The largest difference of scores still treated as a tie.
+   * @param f1TieBreak Whether models with tied INF are ordered and distinguished by F1.
+   */
+  public ModelRanking(Method method, double tolerance, boolean f1TieBreak) {
+    if (tolerance < 0 || Double.isNaN(tolerance)) {
+      throw new IllegalArgumentException("Tie tolerance must be a non-negative number");
+    }
+    this.method = method;
+    this.tolerance = tolerance;
+    this.f1TieBreak = f1TieBreak;
+  }
+
+  /**
+   * @param inf The INF score of each model.
+   * @param f1 The F1 score of each model, only used for the F1 tie-break.
+   * @return The rank of each model, starting from 1, at the same positions as the scores.
+   */
+  public int[] rank(double[] inf, double[] f1) {
+    int n = inf.length;
+    int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    int[] buffer = new int[n];
+    mergeSort(order, buffer, 0, n, inf, f1TieBreak ? f1 : null);
+
+    int[] ranks = new int[n];
+    int groupRank = 0;
+    int start = 0;
+    while (start < n) {
+      // Ties are checked against the first model of the group, so small differences do not chain
+      int end = start + 1;
+      while (end < n && isTie(inf[order[start]], inf[order[end]])) {
+        end++;
+      }
+      if (f1TieBreak) {
+        mergeSort(order, buffer, start, end, f1, inf);
+      }
+
+      int f1Leader = order[start];
+      for (int position = start; position < end; position++) {
+        int model = order[position];
+        if (position == start || (f1TieBreak && !isTie(f1[f1Leader], f1[model]))) {
+          f1Leader = model;
+          groupRank = method == Method.COMPETITION ? position + 1 : groupRank + 1;
+        }
+        ranks[model] = groupRank;
+      }
+      start = end;
+    }
+    return ranks;
+  }
+
+  private boolean isTie(double a, double b) {
+    return Double.compare(a, b) == 0 || Math.abs(a - b) <= tolerance;
+  }
+
+  /**
+   * Higher scores first; NaN before all numbers, as in a descending sort of boxed doubles. Equal
+   * primary scores are ordered by the secondary ones, unless they are null.
+   */
+  private static int compare(int a, int b, double[] primary, double[] secondary) {
+    int result = Double.compare(primary[b], primary[a]);
+    if (result == 0 && secondary != null) {
+      result = Double.compare(secondary[b], secondary[a]);
+    }
+    return result;
+  }
+
+  private static void mergeSort(
+      int[] order, int[] buffer, int from, int to, double[] primary, double[] secondary) {
+    if (to - from < 2) {
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    mergeSort(order, buffer, from, middle, primary, secondary);
+    mergeSort(order, buffer, middle, to, primary, secondary);
+    if (compare(order[middle - 1], order[middle], primary, secondary) <= 0) {
+      return; // Already in order
+    }
+
+    System.arraycopy(order, from, buffer, from, to - from);
+    int left = from;
+    int right = middle;
+    for (int i = from; i < to; i++) {
+      if (right >= to
+          || (left < middle && compare(buffer[left], buffer[right], primary, secondary) <= 0)) {
+        order[i] = buffer[left++];
+      } else {
+        order[i] = buffer[right++];
+      }
+    }
+  }
+}
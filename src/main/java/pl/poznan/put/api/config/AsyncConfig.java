@@ -1,14 +1,20 @@
 package pl.poznan.put.api.config;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig {
+  private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
 
   @Bean(name = "taskExecutor")
   public Executor taskExecutor() {
@@ -21,4 +27,58 @@ public class AsyncConfig {
     executor.initialize();
     return executor;
   }
+
+  @Bean(name = "pipelineExecutor")
+  public Executor pipelineExecutor() {
+    // Runs the stages of a task's stage graph; a stage is only scheduled once its dependencies
+    // are done, so the queue never holds work that the running stages wait for.
+    int coreCount = Runtime.getRuntime().availableProcessors();
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(coreCount * 2);
+    executor.setMaxPoolSize(coreCount * 2);
+    executor.setThreadNamePrefix("Pipeline-");
+    executor.initialize();
+    return executor;
+  }
+
+  @Bean(name = "remoteIoExecutor")
+  public Executor remoteIoExecutor(@Value("${remote-io.concurrency:24}") int concurrency) {
+    // Blocking calls to the remote services spend their time waiting on the network, so their
+    // parallelism follows the combined number of replicas behind haproxy instead of the core
+    // count. A smaller limit would let calls to one service starve those to the others.
+    if (Runtime.version().feature() >= 21) {
+      logger.info("Using virtual threads for remote I/O (concurrency: {})", concurrency);
+      SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("RemoteIo-");
+      executor.setVirtualThreads(true);
+      executor.setConcurrencyLimit(concurrency);
+      return executor;
+    }
+
+    logger.info("Using a platform thread pool for remote I/O (concurrency: {})", concurrency);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setThreadNamePrefix("RemoteIo-");
+    executor.initialize();
+    return executor;
+  }
+
+  @Bean(name = "taskEventExecutor")
+  public Executor taskEventExecutor(@Value("${task-events.send-threads:8}") int threads) {
+    // Sends Server-Sent Events, so a slow subscriber blocks one of these threads instead of the
+    // pipeline thread reporting progress.
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(threads);
+    executor.setMaxPoolSize(threads);
+    executor.setThreadNamePrefix("TaskEvents-");
+    executor.initialize();
+    return executor;
+  }
+
+  @Bean(name = "scoringPool", destroyMethod = "shutdown")
+  public ForkJoinPool scoringPool() {
+    // Scoring models is CPU-bound and split into many small independent cells, which suits
+    // work-stealing better than the pipeline's thread pool.
+    return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
 }
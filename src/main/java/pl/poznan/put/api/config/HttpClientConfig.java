@@ -0,0 +1,112 @@
+package pl.poznan.put.api.config;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * HTTP clients of the remote services. Every service gets its own pool of keep-alive connections,
+ * so a slow service cannot take connections needed by the others, and a model no longer pays for
+ * a new TCP connection per call.
+ */
+@Configuration
+public class HttpClientConfig implements DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(HttpClientConfig.class);
+
+  private final List<CloseableHttpClient> clients = new CopyOnWriteArrayList<>();
+  private final Timeout connectTimeout;
+  private final Timeout readTimeout;
+  private final TimeValue idleTimeout;
+  private final int maxConnectionsPerRoute;
+
+  public HttpClientConfig(
+      @Value("${http-client.connect-timeout-ms:5000}") long connectTimeoutMs,
+      @Value("${http-client.read-timeout-ms:300000}") long readTimeoutMs,
+      @Value("${http-client.idle-timeout-ms:9000}") long idleTimeoutMs,
+      @Value("${http-client.max-connections-per-route:32}") int maxConnectionsPerRoute) {
+    this.connectTimeout = Timeout.ofMilliseconds(connectTimeoutMs);
+    this.readTimeout = Timeout.ofMilliseconds(readTimeoutMs);
+    this.idleTimeout = TimeValue.ofMilliseconds(idleTimeoutMs);
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
+  /** Used by the analysis and conversion clients, both served by the adapters. */
+  @Bean(name = "analysisRestTemplate")
+  public RestTemplate analysisRestTemplate() {
+    return pooledRestTemplate("analysis");
+  }
+
+  @Bean(name = "rnapolisRestTemplate")
+  public RestTemplate rnapolisRestTemplate() {
+    return pooledRestTemplate("rnapolis");
+  }
+
+  @Bean(name = "varnaTzRestTemplate")
+  public RestTemplate varnaTzRestTemplate() {
+    return pooledRestTemplate("varna-tz");
+  }
+
+  @Bean(name = "rchieRestTemplate")
+  public RestTemplate rchieRestTemplate() {
+    return pooledRestTemplate("rchie");
+  }
+
+  @Bean(name = "rnalyzerRestTemplate")
+  public RestTemplate rnalyzerRestTemplate() {
+    return pooledRestTemplate("rnalyzer");
+  }
+
+  private RestTemplate pooledRestTemplate(String service) {
+    // Each service is reached through a single route (its haproxy frontend), so the pool is
+    // bounded by the per-route limit
+    var connectionManager =
+        PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnPerRoute(maxConnectionsPerRoute)
+            .setMaxConnTotal(maxConnectionsPerRoute)
+            .setDefaultConnectionConfig(
+                ConnectionConfig.custom()
+                    .setConnectTimeout(connectTimeout)
+                    .setSocketTimeout(readTimeout)
+                    .setValidateAfterInactivity(TimeValue.ofSeconds(1))
+                    .build())
+            .build();
+
+    // Idle connections are closed before haproxy's keep-alive timeout closes them on its side
+    CloseableHttpClient client =
+        HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .evictIdleConnections(idleTimeout)
+            .evictExpiredConnections()
+            .build();
+    clients.add(client);
+
+    logger.info(
+        "Created HTTP connection pool for {} (max connections: {}, connect timeout: {}, read"
+            + " timeout: {})",
+        service,
+        maxConnectionsPerRoute,
+        connectTimeout,
+        readTimeout);
+    return new RestTemplate(new HttpComponentsClientHttpRequestFactory(client));
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    for (CloseableHttpClient client : clients) {
+      client.close();
+    }
+  }
+}
@@ -1,9 +1,7 @@
 package pl.poznan.put.api.config;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -15,11 +13,6 @@ public class WebConfig implements WebMvcConfigurer {
   @Value("${cors.allowed-methods}")
   private String allowedMethods;
 
-  @Bean
-  public RestTemplate restTemplate() {
-    return new RestTemplate();
-  }
-
   @Override
   public void addCorsMappings(CorsRegistry registry) {
     registry
@@ -0,0 +1,73 @@
+package pl.poznan.put.api.consensus;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import pl.poznan.put.ConsensusInteraction;
+import pl.poznan.put.ConsensusMode;
+
+/**
+ * Remembers the consensus sets determined within a single task. Interaction lists are compared by
+ * identity: the lists of a task are immutable and every consumer passes the same instance, so
+ * comparing their contents would only cost time. Each set is computed once, also when several
+ * threads ask for it at the same time, and is returned as an immutable set. Thread-safe.
+ */
+public class ConsensusSetMemo {
+  private final ConcurrentMap<Key, CompletableFuture<Set<ConsensusInteraction>>> sets =
+      new ConcurrentHashMap<>();
+
+  /**
+   * @param interactions The interactions the consensus is determined from.
+   * @param confidenceLevel The confidence level threshold (null for fuzzy mode).
+   * @param mode The type of interactions to consider.
+   * @param compute Determines the consensus set if it is not known yet.
+   * @return The consensus set, as an immutable set.
+   */
+  public Set<ConsensusInteraction> computeIfAbsent(
+      List<ConsensusInteraction> interactions,
+      Integer confidenceLevel,
+      ConsensusMode mode,
+      Supplier<Set<ConsensusInteraction>> compute) {
+    var key = new Key(interactions, confidenceLevel, mode);
+    var existing = sets.get(key);
+    if (existing != null) {
+      return existing.join();
+    }
+
+    // Computed outside of the map, so that a long computation does not block other keys
+    var future = new CompletableFuture<Set<ConsensusInteraction>>();
+    existing = sets.putIfAbsent(key, future);
+    if (existing != null) {
+      return existing.join();
+    }
+    try {
+      future.complete(Set.copyOf(compute.get()));
+    } catch (Throwable e) {
+      // Errors as well, or threads waiting for this key would never be released
+      sets.remove(key, future);
+      future.completeExceptionally(e);
+      throw e;
+    }
+    return future.join();
+  }
+
+  private record Key(
+      List<ConsensusInteraction> interactions, Integer confidenceLevel, ConsensusMode mode) {
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key other
+          && interactions == other.interactions
+          && Objects.equals(confidenceLevel, other.confidenceLevel)
+          && mode == other.mode;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(interactions), confidenceLevel, mode);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package pl.poznan.put.api.consensus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.poznan.put.ConsensusInteraction;
+import pl.poznan.put.ConsensusMode;
+import pl.poznan.put.notation.LeontisWesthof;
+import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
+
+/**
+ * Resolves conflicts among consensus interactions. Base pairs of the same Leontis-Westhof class
+ * conflict when they share a residue; of two conflicting base pairs the one found in fewer models
+ * is removed, with ties broken by the residues. Stackings never conflict.
+ */
+public final class InteractionConflicts {
+  private static final Logger logger = LoggerFactory.getLogger(InteractionConflicts.class);
+
+  /** The order of removal, lowest priority first. */
+  private static final Comparator<ConsensusInteraction> CONFLICT_ORDER =
+      Comparator.comparing(ConsensusInteraction::modelCount) // Threshold: Higher count wins
+          .thenComparing(ConsensusInteraction::partner1) // Tie-breaker 1
+          .thenComparing(ConsensusInteraction::partner2); // Tie-breaker 2
+
+  private InteractionConflicts() {}
+
+  /**
+   * @param interactions The consensus interactions to resolve.
+   * @param mode The consensus mode, base pairs are not resolved in the stacking mode.
+   * @return A new, mutable set of the interactions without conflicts.
+   */
+  public static Set<ConsensusInteraction> resolve(
+      Collection<ConsensusInteraction> interactions, ConsensusMode mode) {
+    var resolvedInteractions = new HashSet<>(interactions); // Work on a mutable copy
+    if (mode == ConsensusMode.STACKING) {
+      return resolvedInteractions;
+    }
+
+    // Conflicts are only checked among base pairs of the same Leontis-Westhof class
+    Map<LeontisWesthof, List<ConsensusInteraction>> candidatesByClass =
+        new EnumMap<>(LeontisWesthof.class);
+    for (var candidate : resolvedInteractions) {
+      if (candidate.category() == ConsensusInteraction.InteractionCategory.BASE_PAIR
+          && candidate.leontisWesthof().isPresent()) {
+        candidatesByClass
+            .computeIfAbsent(candidate.leontisWesthof().get(), k -> new ArrayList<>())
+            .add(candidate);
+      }
+    }
+
+    candidatesByClass.forEach(
+        (leontisWesthof, candidates) ->
+            removeConflicts(leontisWesthof, candidates, resolvedInteractions));
+    return resolvedInteractions;
+  }
+
+  /**
+   * Repeatedly removes the lowest priority interaction among those sharing a residue with another
+   * interaction, until every residue takes part in at most one interaction. Residue degrees only
+   * decrease, so an interaction that is not in conflict never gets into one again and all of them
+   * can be taken from a single priority queue in order.
+   *
+   * @param leontisWesthof The class of the candidates, used for logging.
+   * @param candidates The base pairs of one Leontis-Westhof class.
+   * @param resolvedInteractions The set to remove the losing interactions from.
+   */
+  private static void removeConflicts(
+      LeontisWesthof leontisWesthof,
+      List<ConsensusInteraction> candidates,
+      Set<ConsensusInteraction> resolvedInteractions) {
+    var degrees = new HashMap<PdbNamedResidueIdentifier, Integer>();
+    for (var candidate : candidates) {
+      degrees.merge(candidate.partner1(), 1, Integer::sum);
+      degrees.merge(candidate.partner2(), 1, Integer::sum);
+    }
+
+    // Candidates equal according to the comparator are removed in their input order
+    var queue =
+        new PriorityQueue<Integer>(
+            Math.max(1, candidates.size()),
+            Comparator.<Integer, ConsensusInteraction>comparing(candidates::get, CONFLICT_ORDER)
+                .thenComparing(Comparator.naturalOrder()));
+    for (int i = 0; i < candidates.size(); i++) {
+      queue.add(i);
+    }
+
+    while (!queue.isEmpty()) {
+      var candidate = candidates.get(queue.poll());
+      if (degrees.get(candidate.partner1()) <= 1 && degrees.get(candidate.partner2()) <= 1) {
+        continue; // Not in conflict, and it cannot get into one anymore
+      }
+
+      logger.trace(
+          "Conflict detected for LW {}. Removing lowest priority interaction: {}",
+          leontisWesthof,
+          candidate);
+      resolvedInteractions.remove(candidate);
+      degrees.merge(candidate.partner1(), -1, Integer::sum);
+      degrees.merge(candidate.partner2(), -1, Integer::sum);
+    }
+  }
+}
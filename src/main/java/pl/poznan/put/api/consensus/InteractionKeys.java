@@ -0,0 +1,77 @@
+package pl.poznan.put.api.consensus;
+
+import pl.poznan.put.notation.LeontisWesthof;
+import pl.poznan.put.notation.Saenger;
+import pl.poznan.put.rna.InteractionType;
+import pl.poznan.put.structure.AnalyzedBasePair;
+
+/**
+ * Encodes an interaction as a non-negative long. From the most significant bits: left residue
+ * index (24 bits), right residue index (24 bits), stacking flag (1 bit), Leontis-Westhof class (5
+ * bits) and Saenger class (6 bits). Two keys are equal exactly when the encoded {@link
+ * AnalyzedBasePair} objects are equal, and keys of the same residue pair sort next to each other.
+ */
+public final class InteractionKeys {
+  public static final int MAX_RESIDUE_INDEX = (1 << 24) - 1;
+
+  private static final int SAENGER_BITS = 6;
+  private static final int LW_BITS = 5;
+  private static final int LW_SHIFT = SAENGER_BITS;
+  private static final int STACKING_SHIFT = LW_SHIFT + LW_BITS;
+  private static final int RIGHT_SHIFT = STACKING_SHIFT + 1;
+  private static final int LEFT_SHIFT = RIGHT_SHIFT + 24;
+
+  private static final LeontisWesthof[] LEONTIS_WESTHOF = LeontisWesthof.values();
+
+  static {
+    if (LEONTIS_WESTHOF.length > (1 << LW_BITS) || Saenger.values().length > (1 << SAENGER_BITS)) {
+      throw new IllegalStateException("Interaction classes do not fit into the key layout");
+    }
+  }
+
+  private InteractionKeys() {}
+
+  /**
+   * @param interaction A base-base or stacking interaction.
+   * @param interner The interner of residues of the current task.
+   * @return The key of the interaction.
+   */
+  public static long encode(AnalyzedBasePair interaction, ResidueInterner interner) {
+    long left = interner.intern(interaction.basePair().left());
+    long right = interner.intern(interaction.basePair().right());
+    long stacking = interaction.interactionType() == InteractionType.STACKING ? 1L : 0L;
+    return left << LEFT_SHIFT
+        | right << RIGHT_SHIFT
+        | stacking << STACKING_SHIFT
+        | (long) interaction.leontisWesthof().ordinal() << LW_SHIFT
+        | interaction.saenger().ordinal();
+  }
+
+  /**
+   * @return The key of a residue pair, in the same orientation, as encoded by {@link #pairOf}.
+   */
+  public static long pair(int left, int right) {
+    return (long) left << 24 | right;
+  }
+
+  /** Returns the residue pair of an interaction key, comparable with {@link #pair}. */
+  public static long pairOf(long key) {
+    return key >>> RIGHT_SHIFT;
+  }
+
+  public static int left(long key) {
+    return (int) (key >>> LEFT_SHIFT);
+  }
+
+  public static int right(long key) {
+    return (int) (key >>> RIGHT_SHIFT) & MAX_RESIDUE_INDEX;
+  }
+
+  public static boolean isStacking(long key) {
+    return (key >>> STACKING_SHIFT & 1L) != 0;
+  }
+
+  public static LeontisWesthof leontisWesthof(long key) {
+    return LEONTIS_WESTHOF[(int) (key >>> LW_SHIFT) & ((1 << LW_BITS) - 1)];
+  }
+}
@@ -0,0 +1,102 @@
+package pl.poznan.put.api.consensus;
+
+import java.util.Arrays;
+
+/**
+ * Counts occurrences of non-negative long keys in an open-addressing table with linear probing,
+ * without boxing the keys or the counts. Not thread-safe.
+ */
+public class LongIntCountMap {
+  private static final long EMPTY = -1L;
+
+  private long[] keys;
+  private int[] counts;
+  private int size;
+
+  public LongIntCountMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+    keys = new long[capacity];
+    counts = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+  }
+
+  /** Increments the count of each key of the array by one. */
+  public void incrementAll(long[] keysToCount) {
+    for (long key : keysToCount) {
+      increment(key);
+    }
+  }
+
+  public void increment(long key) {
+    if (key < 0) {
+      throw new IllegalArgumentException("Keys must be non-negative: " + key);
+    }
+    int slot = find(keys, key);
+    if (keys[slot] == EMPTY) {
+      keys[slot] = key;
+      size++;
+      if (size * 2 > keys.length) {
+        grow();
+        slot = find(keys, key);
+      }
+    }
+    counts[slot]++;
+  }
+
+  /** Returns the count of the key, 0 if it was never incremented. */
+  public int get(long key) {
+    int slot = find(keys, key);
+    return keys[slot] == EMPTY ? 0 : counts[slot];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Returns the keys with a non-zero count in ascending order. */
+  public long[] sortedKeys() {
+    long[] result = new long[size];
+    int i = 0;
+    for (long key : keys) {
+      if (key != EMPTY) {
+        result[i++] = key;
+      }
+    }
+    Arrays.sort(result);
+    return result;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldCounts = counts;
+    keys = new long[oldKeys.length * 2];
+    counts = new int[oldKeys.length * 2];
+    Arrays.fill(keys, EMPTY);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = find(keys, oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        counts[slot] = oldCounts[i];
+      }
+    }
+  }
+
+  private static int find(long[] table, long key) {
+    int mask = table.length - 1;
+    int slot = mix(key) & mask;
+    while (table[slot] != EMPTY && table[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static int mix(long key) {
+    // Finalizer of MurmurHash3, spreads keys differing only in their high bits
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
@@ -0,0 +1,56 @@
+package pl.poznan.put.api.consensus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
+
+/**
+ * Assigns consecutive integers to residue identifiers of a single task, so that interactions can
+ * be encoded as primitive keys. Not thread-safe.
+ */
+public class ResidueInterner {
+  private final Map<PdbNamedResidueIdentifier, Integer> indices = new HashMap<>();
+  private final List<PdbNamedResidueIdentifier> residues = new ArrayList<>();
+
+  /**
+   * @param residue The residue identifier.
+   * @return The index of the residue, assigned on the first call for an equal identifier.
+   */
+  public int intern(PdbNamedResidueIdentifier residue) {
+    Integer index = indices.get(residue);
+    if (index != null) {
+      return index;
+    }
+    if (residues.size() > InteractionKeys.MAX_RESIDUE_INDEX) {
+      throw new IllegalStateException("Too many distinct residues: " + residues.size());
+    }
+    index = residues.size();
+    indices.put(residue, index);
+    residues.add(residue);
+    return index;
+  }
+
+  /**
+   * @param residue The residue identifier.
+   * @return The index of the residue or -1 if it was never interned.
+   */
+  public int indexOf(PdbNamedResidueIdentifier residue) {
+    return indices.getOrDefault(residue, -1);
+  }
+
+  public PdbNamedResidueIdentifier residue(int index) {
+    return residues.get(index);
+  }
+
+  public int size() {
+    return residues.size();
+  }
+
+  /** Returns the interned residues ordered by their indices. */
+  public List<PdbNamedResidueIdentifier> residues() {
+    return Collections.unmodifiableList(residues);
+  }
+}
@@ -0,0 +1,41 @@
+package pl.poznan.put.api.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import pl.poznan.put.api.dto.CacheStats;
+import pl.poznan.put.api.service.AnalysisCacheService;
+import pl.poznan.put.api.service.DotBracketService;
+import pl.poznan.put.api.service.ResultTablesService;
+import pl.poznan.put.api.service.StructureCache;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+  private final AnalysisCacheService analysisCacheService;
+  private final StructureCache structureCache;
+  private final ResultTablesService resultTablesService;
+  private final DotBracketService dotBracketService;
+
+  public CacheController(
+      AnalysisCacheService analysisCacheService,
+      StructureCache structureCache,
+      ResultTablesService resultTablesService,
+      DotBracketService dotBracketService) {
+    this.analysisCacheService = analysisCacheService;
+    this.structureCache = structureCache;
+    this.resultTablesService = resultTablesService;
+    this.dotBracketService = dotBracketService;
+  }
+
+  @GetMapping("/stats")
+  public List<CacheStats> getStats() {
+    List<CacheStats> stats = new ArrayList<>(analysisCacheService.stats());
+    stats.add(structureCache.stats());
+    stats.add(resultTablesService.stats());
+    stats.add(dotBracketService.stats());
+    return stats;
+  }
+}
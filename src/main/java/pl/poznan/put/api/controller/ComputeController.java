@@ -2,19 +2,26 @@ package pl.poznan.put.api.controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.server.ResponseStatusException;
+import pl.poznan.put.ConsensusMode;
 import pl.poznan.put.api.dto.*;
 import pl.poznan.put.api.exception.ResourceNotFoundException;
 import pl.poznan.put.api.service.ComputeService;
+import pl.poznan.put.api.storage.ArtifactStream;
 
 @RestController
 @RequestMapping("/api/compute")
@@ -38,6 +45,15 @@ public class ComputeController {
     return computeService.getTaskStatus(taskId);
   }
 
+  @GetMapping(value = "/{taskId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> getEvents(@PathVariable String taskId) {
+    logger.debug("Subscribing to events of task {}", taskId);
+    // Tell nginx not to buffer the stream
+    return ResponseEntity.ok()
+        .header("X-Accel-Buffering", "no")
+        .body(computeService.streamTaskEvents(taskId));
+  }
+
   @GetMapping("/{taskId}/result")
   public TablesResponse getResult(@PathVariable String taskId) throws Exception {
     return computeService.getTables(taskId);
@@ -49,23 +65,67 @@ public class ComputeController {
     return computeService.getModelTables(taskId, filename);
   }
 
+  @PostMapping("/{taskId}/rescore")
+  public TablesResponse rescore(@PathVariable String taskId, @RequestBody RescoreRequest request)
+      throws Exception {
+    logger.info("Received rescoring request for task {}", taskId);
+    return computeService.rescore(taskId, request);
+  }
+
+  @GetMapping("/{taskId}/sweep")
+  public ConfidenceSweepResponse sweepConfidenceLevels(
+      @PathVariable String taskId,
+      @RequestParam(defaultValue = "ALL") ConsensusMode consensusMode)
+      throws Exception {
+    return computeService.sweepConfidenceLevels(taskId, consensusMode);
+  }
+
   @GetMapping(value = "/{taskId}/svg", produces = "image/svg+xml")
-  public String getConsensusSvg(@PathVariable String taskId) {
-    try {
-      // This endpoint now returns the consensus SVG by default
-      return computeService.getTaskSvg(taskId);
-    } catch (ResourceNotFoundException | IllegalStateException e) {
-      throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
-    }
+  public ResponseEntity<StreamingResponseBody> getConsensusSvg(
+      @PathVariable String taskId,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+          String acceptEncoding) {
+    // This endpoint now returns the consensus SVG by default
+    return streamSvg(taskId, "consensus", acceptEncoding);
   }
 
   @GetMapping(value = "/{taskId}/svg/{modelName}", produces = "image/svg+xml")
-  public String getModelSvg(@PathVariable String taskId, @PathVariable String modelName) {
+  public ResponseEntity<StreamingResponseBody> getModelSvg(
+      @PathVariable String taskId,
+      @PathVariable String modelName,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+          String acceptEncoding) {
+    return streamSvg(taskId, modelName, acceptEncoding);
+  }
+
+  private ResponseEntity<StreamingResponseBody> streamSvg(
+      String taskId, String modelName, String acceptEncoding) {
+    boolean acceptGzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    ArtifactStream svg;
     try {
-      return computeService.getModelSvg(taskId, modelName);
+      svg = computeService.openModelSvg(taskId, modelName, acceptGzip);
     } catch (ResourceNotFoundException | IllegalStateException e) {
       throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+    } catch (IOException e) {
+      logger.error("Failed to read SVG {} of task {}", modelName, taskId, e);
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read SVG visualization", e);
+    }
+
+    // Stored SVGs are gzip-compressed already, so they are passed through as they are
+    var response =
+        ResponseEntity.ok()
+            .contentType(MediaType.valueOf("image/svg+xml"))
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (svg.gzipped()) {
+      response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
     }
+    return response.body(
+        output -> {
+          try (InputStream input = svg.stream()) {
+            input.transferTo(output);
+          }
+        });
   }
 
   @GetMapping("/{taskId}/request")
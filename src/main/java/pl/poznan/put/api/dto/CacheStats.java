@@ -0,0 +1,10 @@
+package pl.poznan.put.api.dto;
+
+public record CacheStats(
+    String name,
+    long hits,
+    long misses,
+    long evictions,
+    long entries,
+    long weight,
+    long maxWeight) {}
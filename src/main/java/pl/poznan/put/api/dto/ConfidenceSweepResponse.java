@@ -0,0 +1,14 @@
+package pl.poznan.put.api.dto;
+
+import java.util.List;
+import pl.poznan.put.ConsensusMode;
+
+/**
+ * Scores and ranks of all models of a task for every confidence level. The arrays of each level
+ * are indexed like {@link #modelNames}.
+ */
+public record ConfidenceSweepResponse(
+    ConsensusMode consensusMode, List<String> modelNames, List<Level> levels) {
+  public record Level(
+      int confidenceLevel, double[] interactionNetworkFidelity, double[] f1score, int[] rank) {}
+}
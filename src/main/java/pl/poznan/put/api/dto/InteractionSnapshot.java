@@ -0,0 +1,23 @@
+package pl.poznan.put.api.dto;
+
+import java.util.List;
+import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
+
+/**
+ * The interactions of a completed task in the compact form used to count them, stored so that the
+ * consensus and the ranking can be recomputed for other parameters without analyzing the models
+ * again.
+ *
+ * @param structure The first model in PDB format, the template for the reference structure and
+ *     the consensus dot-bracket.
+ * @param confidenceLevel The confidence level the task was computed with (null for fuzzy mode).
+ * @param residues The residues of all interactions, in the order of their indices in the keys.
+ * @param models The interaction keys of every model, in the order of the models.
+ */
+public record InteractionSnapshot(
+    String structure,
+    Integer confidenceLevel,
+    List<PdbNamedResidueIdentifier> residues,
+    List<ModelKeys> models) {
+  public record ModelKeys(String name, long[] keys) {}
+}
@@ -0,0 +1,3 @@
+package pl.poznan.put.api.dto;
+
+public record RescoreRequest(Integer confidenceLevel, String dotBracket) {}
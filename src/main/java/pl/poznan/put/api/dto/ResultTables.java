@@ -0,0 +1,12 @@
+package pl.poznan.put.api.dto;
+
+import java.util.Map;
+
+/**
+ * Tables of a completed task, computed once when the task completes. Every row of a model table
+ * is also a row of the corresponding summary table, so models only keep indices of their rows.
+ */
+public record ResultTables(TablesResponse summary, Map<String, ModelRows> models) {
+  public record ModelRows(
+      int[] canonicalPairs, int[] nonCanonicalPairs, int[] stackings, String dotBracket) {}
+}
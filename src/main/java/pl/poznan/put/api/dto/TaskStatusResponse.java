@@ -3,6 +3,7 @@ package pl.poznan.put.api.dto;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import pl.poznan.put.api.model.Task;
 import pl.poznan.put.api.model.TaskStatus;
 
 public record TaskStatusResponse(
@@ -13,4 +14,16 @@ public record TaskStatusResponse(
     Map<String, List<String>> removalReasons,
     int currentProgress,
     int totalProgressSteps,
-    String progressMessage) {}
+    String progressMessage) {
+  public static TaskStatusResponse from(Task task) {
+    return new TaskStatusResponse(
+        task.getId(),
+        task.getStatus(),
+        task.getCreatedAt(),
+        task.getMessage(),
+        task.getRemovalReasons(),
+        task.getCurrentProgress(),
+        task.getTotalProgressSteps(),
+        task.getProgressMessage());
+  }
+}
@@ -0,0 +1,69 @@
+package pl.poznan.put.api.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import pl.poznan.put.Analyzer;
+
+/** A persisted 2D analysis result, keyed by the SHA-256 of the analyzed PDB content. */
+@Entity
+@Table(name = "analysis_cache")
+public class AnalysisCacheEntry {
+  @Id private String id;
+
+  @Column(length = 64, nullable = false)
+  private String contentHash;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private Analyzer analyzer;
+
+  @Column(columnDefinition = "TEXT", nullable = false)
+  private String result;
+
+  private Instant createdAt;
+
+  private Instant lastAccessedAt;
+
+  protected AnalysisCacheEntry() {}
+
+  public AnalysisCacheEntry(String contentHash, Analyzer analyzer, String result) {
+    this.id = idOf(contentHash, analyzer);
+    this.contentHash = contentHash;
+    this.analyzer = analyzer;
+    this.result = result;
+    this.createdAt = Instant.now();
+    this.lastAccessedAt = this.createdAt;
+  }
+
+  public static String idOf(String contentHash, Analyzer analyzer) {
+    return contentHash + ":" + analyzer.name();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getContentHash() {
+    return contentHash;
+  }
+
+  public Analyzer getAnalyzer() {
+    return analyzer;
+  }
+
+  public String getResult() {
+    return result;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public Instant getLastAccessedAt() {
+    return lastAccessedAt;
+  }
+
+  public void setLastAccessedAt(Instant lastAccessedAt) {
+    this.lastAccessedAt = lastAccessedAt;
+  }
+}
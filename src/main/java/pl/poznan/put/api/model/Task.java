@@ -6,6 +6,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Entity
+@Table(indexes = @Index(name = "idx_task_request_hash", columnList = "requestHash"))
 public class Task {
   @Id private String id;
 
@@ -16,8 +17,17 @@ public class Task {
 
   @Lob private String request;
 
+  @Column(length = 64)
+  private String requestHash;
+
   @Lob private String result;
 
+  // Tables served by the result endpoints, built from the result when the task completes
+  @Lob private String resultTables;
+
+  // Interactions of the analyzed models, kept to recompute the ranking for other parameters
+  @Lob private String interactionSnapshot;
+
   @Lob private String message;
 
   @ElementCollection(fetch = FetchType.LAZY)
@@ -26,6 +36,13 @@ public class Task {
   @Column(name = "svg_content", columnDefinition = "TEXT")
   private Map<String, String> modelSvgs = new ConcurrentHashMap<>(); // Use ConcurrentHashMap
 
+  // Keys of SVGs in the artifact store; modelSvgs only holds SVGs of tasks from before the store
+  @ElementCollection(fetch = FetchType.LAZY)
+  @CollectionTable(name = "model_svg_artifacts", joinColumns = @JoinColumn(name = "task_id"))
+  @MapKeyColumn(name = "model_name")
+  @Column(name = "artifact_key", length = 64)
+  private Map<String, String> svgArtifacts = new ConcurrentHashMap<>();
+
   @ElementCollection(fetch = FetchType.EAGER)
   @CollectionTable(name = "removal_reasons", joinColumns = @JoinColumn(name = "task_id"))
   @MapKeyColumn(name = "model_name")
@@ -73,6 +90,14 @@ public class Task {
     this.request = request;
   }
 
+  public String getRequestHash() {
+    return requestHash;
+  }
+
+  public void setRequestHash(String requestHash) {
+    this.requestHash = requestHash;
+  }
+
   public String getResult() {
     return result;
   }
@@ -81,6 +106,22 @@ public class Task {
     this.result = result;
   }
 
+  public String getResultTables() {
+    return resultTables;
+  }
+
+  public void setResultTables(String resultTables) {
+    this.resultTables = resultTables;
+  }
+
+  public String getInteractionSnapshot() {
+    return interactionSnapshot;
+  }
+
+  public void setInteractionSnapshot(String interactionSnapshot) {
+    this.interactionSnapshot = interactionSnapshot;
+  }
+
   public String getMessage() {
     return message;
   }
@@ -113,6 +154,14 @@ public class Task {
     modelSvgs.put(modelName, svgContent);
   }
 
+  public Map<String, String> getSvgArtifacts() {
+    return svgArtifacts;
+  }
+
+  public void addSvgArtifact(String modelName, String artifactKey) {
+    svgArtifacts.put(modelName, artifactKey);
+  }
+
   public int getCurrentProgress() {
     return currentProgress;
   }
@@ -136,4 +185,26 @@ public class Task {
   public void setProgressMessage(String progressMessage) {
     this.progressMessage = progressMessage;
   }
+
+  /**
+   * Makes this task a completed copy of another one, used when an identical request was already
+   * processed.
+   */
+  public void copyResultsFrom(Task source) {
+    this.status = TaskStatus.COMPLETED;
+    this.request = source.request;
+    this.requestHash = source.requestHash;
+    this.result = source.result;
+    this.resultTables = source.resultTables;
+    this.interactionSnapshot = source.interactionSnapshot;
+    this.message = source.message;
+    this.modelSvgs.putAll(source.modelSvgs);
+    this.svgArtifacts.putAll(source.svgArtifacts);
+    source.removalReasons.forEach(
+        (modelName, reasons) -> this.removalReasons.put(modelName, new ArrayList<>(reasons)));
+    this.molprobityResponses.putAll(source.molprobityResponses);
+    this.currentProgress = source.totalProgressSteps;
+    this.totalProgressSteps = source.totalProgressSteps;
+    this.progressMessage = source.progressMessage;
+  }
 }
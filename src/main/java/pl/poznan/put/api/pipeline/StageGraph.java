@@ -0,0 +1,106 @@
+package pl.poznan.put.api.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A dependency graph of the stages of a single task. Each stage is scheduled on the executor as
+ * soon as all of its dependencies have completed, so stages which do not depend on each other run
+ * concurrently. Stages never wait for each other while running, which keeps the graph free of
+ * deadlocks regardless of the executor size.
+ */
+public class StageGraph {
+  private static final Logger logger = LoggerFactory.getLogger(StageGraph.class);
+
+  private final String taskId;
+  private final Executor executor;
+  private final StageListener listener;
+  private final List<Stage<?>> stages = new ArrayList<>();
+
+  public StageGraph(String taskId, Executor executor) {
+    this(taskId, executor, StageListener.NONE);
+  }
+
+  public StageGraph(String taskId, Executor executor, StageListener listener) {
+    this.taskId = taskId;
+    this.executor = executor;
+    this.listener = listener;
+  }
+
+  /**
+   * Adds a stage to the graph.
+   *
+   * @param name The name of the stage, used for logging.
+   * @param action The work of the stage. Results of the dependencies are available through {@link
+   *     Stage#result()}.
+   * @param dependencies The stages which must complete before this one starts.
+   * @return A handle to the stage, usable as a dependency of other stages.
+   */
+  public <T> Stage<T> stage(String name, Callable<T> action, Stage<?>... dependencies) {
+    CompletableFuture<?>[] dependencyFutures =
+        Arrays.stream(dependencies).map(Stage::future).toArray(CompletableFuture[]::new);
+    CompletableFuture<T> future =
+        CompletableFuture.allOf(dependencyFutures)
+            .thenApplyAsync(ignored -> run(name, action), executor);
+    Stage<T> stage = new Stage<>(name, future);
+    stages.add(stage);
+    return stage;
+  }
+
+  /**
+   * Waits until every stage has finished.
+   *
+   * @throws Exception The exception thrown by the first failed stage.
+   */
+  public void await() throws Exception {
+    try {
+      CompletableFuture.allOf(stages.stream().map(Stage::future).toArray(CompletableFuture[]::new))
+          .join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception exception) {
+        throw exception;
+      }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+  private <T> T run(String name, Callable<T> action) {
+    logger.debug("Task {}: starting stage {}", taskId, name);
+    listener.onStageStarted(name);
+    long start = System.nanoTime();
+    try {
+      T result = action.call();
+      logger.info(
+          "Task {}: stage {} finished in {} ms",
+          taskId,
+          name,
+          (System.nanoTime() - start) / 1_000_000);
+      listener.onStageFinished(name, true);
+      return result;
+    } catch (Exception e) {
+      logger.warn("Task {}: stage {} failed: {}", taskId, name, e.getMessage());
+      listener.onStageFinished(name, false);
+      throw new CompletionException(e);
+    }
+  }
+
+  public record Stage<T>(String name, CompletableFuture<T> future) {
+    /**
+     * @return The result of the stage, blocking until it is available.
+     */
+    public T result() {
+      return future.join();
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package pl.poznan.put.api.pipeline;
+
+/** Receives notifications about the stages of a {@link StageGraph}. */
+public interface StageListener {
+  StageListener NONE = new StageListener() {};
+
+  default void onStageStarted(String name) {}
+
+  default void onStageFinished(String name, boolean succeeded) {}
+}
@@ -0,0 +1,20 @@
+package pl.poznan.put.api.repository;
+
+import java.time.Instant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import pl.poznan.put.api.model.AnalysisCacheEntry;
+
+public interface AnalysisCacheRepository extends JpaRepository<AnalysisCacheEntry, String> {
+  @Transactional
+  @Modifying
+  @Query("UPDATE AnalysisCacheEntry e SET e.lastAccessedAt = :accessedAt WHERE e.id = :id")
+  void touch(String id, Instant accessedAt);
+
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM AnalysisCacheEntry e WHERE e.lastAccessedAt < :cutoff")
+  int deleteEntriesNotAccessedSince(Instant cutoff);
+}
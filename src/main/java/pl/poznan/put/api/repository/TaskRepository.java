@@ -1,15 +1,73 @@
 package pl.poznan.put.api.repository;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 import pl.poznan.put.api.model.Task;
+import pl.poznan.put.api.model.TaskStatus;
 
 public interface TaskRepository extends JpaRepository<Task, String> {
   @Transactional
   @Modifying
   @Query("DELETE FROM Task t WHERE t.createdAt < :cutoff")
   void deleteTasksOlderThan(Instant cutoff);
+
+  @Query("SELECT t.id FROM Task t WHERE t.createdAt < :cutoff")
+  List<String> findIdsOlderThan(Instant cutoff);
+
+  @Query("SELECT t.status FROM Task t WHERE t.id = :taskId")
+  Optional<TaskStatus> findStatusById(String taskId);
+
+  @Query("SELECT t.result FROM Task t WHERE t.id = :taskId")
+  Optional<String> findResultById(String taskId);
+
+  @Query("SELECT t.resultTables FROM Task t WHERE t.id = :taskId")
+  Optional<String> findResultTablesById(String taskId);
+
+  @Query("SELECT t.interactionSnapshot FROM Task t WHERE t.id = :taskId")
+  Optional<String> findInteractionSnapshotById(String taskId);
+
+  @Transactional
+  @Modifying
+  @Query("UPDATE Task t SET t.resultTables = :resultTables WHERE t.id = :taskId")
+  int updateResultTables(String taskId, String resultTables);
+
+  @Query(
+      "SELECT VALUE(a) FROM Task t JOIN t.svgArtifacts a"
+          + " WHERE t.id = :taskId AND KEY(a) = :modelName")
+  Optional<String> findSvgArtifactKey(String taskId, String modelName);
+
+  @Query("SELECT DISTINCT VALUE(a) FROM Task t JOIN t.svgArtifacts a")
+  Set<String> findAllSvgArtifactKeys();
+
+  @Query(
+      "SELECT VALUE(s) FROM Task t JOIN t.modelSvgs s"
+          + " WHERE t.id = :taskId AND KEY(s) = :modelName")
+  Optional<String> findLegacyModelSvg(String taskId, String modelName);
+
+  Optional<Task> findFirstByRequestHashAndStatusOrderByCreatedAtDesc(
+      String requestHash, TaskStatus status);
+
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE Task t SET t.currentProgress = :currentProgress,"
+          + " t.totalProgressSteps = :totalProgressSteps, t.progressMessage = :progressMessage"
+          + " WHERE t.id = :taskId AND t.currentProgress <= :currentProgress"
+          + " AND t.status IN (pl.poznan.put.api.model.TaskStatus.PENDING,"
+          + " pl.poznan.put.api.model.TaskStatus.PROCESSING)")
+  int updateProgress(
+      String taskId, int currentProgress, int totalProgressSteps, String progressMessage);
+
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE Task t SET t.status = pl.poznan.put.api.model.TaskStatus.PROCESSING"
+          + " WHERE t.id = :taskId AND t.status = pl.poznan.put.api.model.TaskStatus.PENDING")
+  int markProcessing(String taskId);
 }
@@ -0,0 +1,158 @@
+package pl.poznan.put.api.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.poznan.put.Analyzer;
+import pl.poznan.put.api.dto.CacheStats;
+import pl.poznan.put.api.model.AnalysisCacheEntry;
+import pl.poznan.put.api.repository.AnalysisCacheRepository;
+import pl.poznan.put.api.util.ContentHash;
+import pl.poznan.put.api.util.LruCache;
+
+/**
+ * Two-level cache in front of {@link AnalysisClient}. Results are looked up in memory first, then
+ * in the database, and only on a miss in both the remote analyzer is called. The key is the
+ * SHA-256 of the analyzed PDB content together with the analyzer, so resubmissions of the same
+ * ensemble with different parameters reuse earlier annotations.
+ */
+@Service
+public class AnalysisCacheService {
+  private static final Logger logger = LoggerFactory.getLogger(AnalysisCacheService.class);
+
+  private final AnalysisClient analysisClient;
+  private final AnalysisCacheRepository analysisCacheRepository;
+  private final boolean enabled;
+  private final int retentionDays;
+  private final LruCache<String, String> memoryCache;
+  private final AtomicLong databaseHits = new AtomicLong();
+  private final AtomicLong databaseMisses = new AtomicLong();
+
+  public AnalysisCacheService(
+      AnalysisClient analysisClient,
+      AnalysisCacheRepository analysisCacheRepository,
+      @Value("${analysis-cache.enabled:true}") boolean enabled,
+      @Value("${analysis-cache.memory.max-bytes:67108864}") long memoryMaxBytes,
+      @Value("${analysis-cache.retention-days:30}") int retentionDays) {
+    this.analysisClient = analysisClient;
+    this.analysisCacheRepository = analysisCacheRepository;
+    this.enabled = enabled;
+    this.retentionDays = retentionDays;
+    // JSON results are ASCII, so with compact strings one character takes one byte
+    this.memoryCache = new LruCache<>("analysis-memory", memoryMaxBytes, String::length);
+  }
+
+  /**
+   * Returns the 2D analysis of the given content, calling the remote analyzer only on a cache
+   * miss.
+   *
+   * @param filename The name of the analyzed file, used for logging by the remote service.
+   * @param pdbContent The PDB content to analyze.
+   * @param analyzer The secondary structure analysis tool to use.
+   * @return The BaseInteractions JSON produced by the analyzer.
+   */
+  public String analyze(String filename, String pdbContent, Analyzer analyzer) {
+    if (!enabled) {
+      return analysisClient.analyze(filename, pdbContent, analyzer);
+    }
+
+    String contentHash = ContentHash.sha256(pdbContent);
+    String id = AnalysisCacheEntry.idOf(contentHash, analyzer);
+    Optional<String> cached = memoryCache.get(id);
+    if (cached.isPresent()) {
+      logger.debug("Analysis of {} with {} found in memory cache", filename, analyzer);
+      return cached.get();
+    }
+
+    Optional<String> persisted = findPersisted(id);
+    if (persisted.isPresent()) {
+      logger.debug("Analysis of {} with {} found in database cache", filename, analyzer);
+      memoryCache.put(id, persisted.get());
+      return persisted.get();
+    }
+
+    String result = analysisClient.analyze(filename, pdbContent, analyzer);
+    memoryCache.put(id, result);
+    persist(contentHash, analyzer, result);
+    return result;
+  }
+
+  /**
+   * Removes a result from both cache levels, e.g. when it turned out to be unparseable.
+   *
+   * @param pdbContent The analyzed PDB content.
+   * @param analyzer The analyzer which produced the result.
+   */
+  public void evict(String pdbContent, Analyzer analyzer) {
+    if (!enabled) {
+      return;
+    }
+    String id = AnalysisCacheEntry.idOf(ContentHash.sha256(pdbContent), analyzer);
+    memoryCache.invalidate(id);
+    try {
+      analysisCacheRepository.deleteById(id);
+    } catch (Exception e) {
+      logger.warn("Failed to remove analysis cache entry {}: {}", id, e.getMessage());
+    }
+  }
+
+  public List<CacheStats> stats() {
+    long persistedEntries = 0L;
+    try {
+      persistedEntries = analysisCacheRepository.count();
+    } catch (Exception e) {
+      logger.warn("Failed to count persisted analysis cache entries: {}", e.getMessage());
+    }
+    return List.of(
+        memoryCache.stats(),
+        new CacheStats(
+            "analysis-database",
+            databaseHits.get(),
+            databaseMisses.get(),
+            0L,
+            persistedEntries,
+            0L,
+            0L));
+  }
+
+  /** Removes persisted results which were not used within the retention period. */
+  public void cleanUpOldEntries() {
+    Instant cutoff = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
+    int removed = analysisCacheRepository.deleteEntriesNotAccessedSince(cutoff);
+    logger.info("Removed {} analysis cache entries not used since {}", removed, cutoff);
+  }
+
+  private Optional<String> findPersisted(String id) {
+    // The database layer is an optimization only, failures fall through to the remote call
+    try {
+      Optional<AnalysisCacheEntry> entry = analysisCacheRepository.findById(id);
+      if (entry.isEmpty()) {
+        databaseMisses.incrementAndGet();
+        return Optional.empty();
+      }
+      databaseHits.incrementAndGet();
+      analysisCacheRepository.touch(id, Instant.now());
+      return Optional.of(entry.get().getResult());
+    } catch (Exception e) {
+      logger.warn("Failed to read analysis cache entry {}: {}", id, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  private void persist(String contentHash, Analyzer analyzer, String result) {
+    try {
+      analysisCacheRepository.save(new AnalysisCacheEntry(contentHash, analyzer, result));
+    } catch (Exception e) {
+      logger.warn(
+          "Failed to persist analysis cache entry {}: {}",
+          AnalysisCacheEntry.idOf(contentHash, analyzer),
+          e.getMessage());
+    }
+  }
+}
@@ -2,10 +2,12 @@ package pl.poznan.put.api.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestTemplate;
 import pl.poznan.put.Analyzer;
 
 @Service
@@ -14,9 +16,11 @@ public class AnalysisClient {
   private final String baseUrl;
   private final RestClient restClient;
 
-  public AnalysisClient(@Value("${analysis.service.url}") String serviceUrl) {
+  public AnalysisClient(
+      @Qualifier("analysisRestTemplate") RestTemplate restTemplate,
+      @Value("${analysis.service.url}") String serviceUrl) {
     this.baseUrl = serviceUrl + "/analysis-api/v1";
-    this.restClient = RestClient.create();
+    this.restClient = RestClient.create(restTemplate);
   }
 
   public String analyze(String filename, String pdbContent, Analyzer analyzer) {
@@ -4,17 +4,17 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.stream.Collectors;
-import org.apache.commons.collections4.bag.HashBag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import pl.poznan.put.ConsensusMode;
-import pl.poznan.put.RankedModel;
 import pl.poznan.put.api.dto.*;
 import pl.poznan.put.api.exception.ResourceNotFoundException;
 import pl.poznan.put.api.exception.TaskNotFoundException;
@@ -22,11 +22,9 @@ import pl.poznan.put.api.model.MolProbityFilter;
 import pl.poznan.put.api.model.Task;
 import pl.poznan.put.api.model.TaskStatus;
 import pl.poznan.put.api.repository.TaskRepository;
-import pl.poznan.put.api.util.ReferenceStructureUtil;
+import pl.poznan.put.api.storage.ArtifactStore;
+import pl.poznan.put.api.storage.ArtifactStream;
 import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
-import pl.poznan.put.pdb.analysis.MoleculeType;
-import pl.poznan.put.pdb.analysis.PdbParser;
-import pl.poznan.put.structure.AnalyzedBasePair;
 
 @Service
 public class ComputeService {
@@ -35,33 +33,48 @@ public class ComputeService {
   private final ObjectMapper objectMapper;
   private final TaskProcessorService taskProcessorService;
   private final RnapolisClient rnapolisClient;
+  private final StructureCache structureCache;
+  private final TaskDeduplicationService taskDeduplicationService;
+  private final TaskProgressRegistry taskProgressRegistry;
+  private final TaskEventPublisher taskEventPublisher;
+  private final ArtifactStore artifactStore;
+  private final ResultTablesService resultTablesService;
 
   @Autowired
   public ComputeService(
       TaskRepository taskRepository,
       ObjectMapper objectMapper,
       TaskProcessorService taskProcessorService,
-      RnapolisClient rnapolisClient) {
+      RnapolisClient rnapolisClient,
+      StructureCache structureCache,
+      TaskDeduplicationService taskDeduplicationService,
+      TaskProgressRegistry taskProgressRegistry,
+      TaskEventPublisher taskEventPublisher,
+      ArtifactStore artifactStore,
+      ResultTablesService resultTablesService) {
     this.taskRepository = taskRepository;
     this.objectMapper = objectMapper;
     this.taskProcessorService = taskProcessorService;
     this.rnapolisClient = rnapolisClient;
-  }
-
-  private String getConsensusModeDisplayName(ConsensusMode mode) {
-    return switch (mode) {
-      case ALL -> "All";
-      case CANONICAL -> "Canonical";
-      case NON_CANONICAL -> "Non-canonical";
-      case STACKING -> "Stacking";
-      default -> mode.name(); // Fallback to enum name if new modes are added
-    };
+    this.structureCache = structureCache;
+    this.taskDeduplicationService = taskDeduplicationService;
+    this.taskProgressRegistry = taskProgressRegistry;
+    this.taskEventPublisher = taskEventPublisher;
+    this.artifactStore = artifactStore;
+    this.resultTablesService = resultTablesService;
   }
 
   public ComputeResponse submitComputation(ComputeRequest request) throws Exception {
     logger.info("Submitting new computation task with {} files", request.files().size());
+    var requestHash = taskDeduplicationService.hashOf(request);
+    var completedTaskId = taskDeduplicationService.cloneCompletedTask(requestHash);
+    if (completedTaskId.isPresent()) {
+      return new ComputeResponse(completedTaskId.get());
+    }
+
     var task = new Task();
     task.setRequest(objectMapper.writeValueAsString(request));
+    task.setRequestHash(requestHash);
     task.setStatus(TaskStatus.PENDING); // Initial status
 
     // Calculate total estimated steps based on the request
@@ -97,46 +110,92 @@ public class ComputeService {
     task.setCurrentProgress(0);
     task.setProgressMessage("Task submitted, awaiting processing...");
 
-    task = taskRepository.save(task); // Save with initial progress info
     var taskId = task.getId();
+    // Saved before it is registered, so a duplicate request attached to this task can always
+    // find it; if the request turns out to be running already, the unused task is removed
+    taskRepository.save(task); // Save with initial progress info
+    var runningTaskId = taskDeduplicationService.registerInFlight(requestHash, taskId);
+    if (runningTaskId.isPresent()) {
+      taskRepository.deleteById(taskId);
+      return new ComputeResponse(runningTaskId.get());
+    }
 
-    // Schedule async processing without waiting
-    taskProcessorService.processTaskAsync(taskId);
+    try {
+      // Schedule async processing without waiting
+      taskProcessorService
+          .processTaskAsync(taskId)
+          .whenComplete(
+              (ignored, throwable) -> {
+                taskDeduplicationService.unregisterInFlight(requestHash, taskId);
+                // The final state is committed at this point
+                taskRepository
+                    .findById(taskId)
+                    .map(TaskStatusResponse::from)
+                    .ifPresent(taskEventPublisher::publishFinalStatus);
+              });
+    } catch (RuntimeException e) {
+      taskDeduplicationService.unregisterInFlight(requestHash, taskId);
+      throw e;
+    }
 
     return new ComputeResponse(taskId);
   }
 
   public TaskStatusResponse getTaskStatus(String taskId) {
+    var inProgress = taskProgressRegistry.find(taskId);
+    if (inProgress.isPresent()) {
+      return inProgress.get();
+    }
+
     var task = taskRepository.findById(taskId).orElseThrow(() -> new TaskNotFoundException(taskId));
-    return new TaskStatusResponse(
-        task.getId(),
-        task.getStatus(),
-        task.getCreatedAt(),
-        task.getMessage(),
-        task.getRemovalReasons(),
-        task.getCurrentProgress(),
-        task.getTotalProgressSteps(),
-        task.getProgressMessage());
+    return TaskStatusResponse.from(task);
   }
 
-  public String getTaskSvg(String taskId) {
-    return getModelSvg(taskId, "consensus");
+  /**
+   * Opens a stream of progress, stage and final status events of a task. The current status is
+   * sent right away, so subscribers do not need to poll before subscribing.
+   */
+  public SseEmitter streamTaskEvents(String taskId) {
+    return taskEventPublisher.subscribe(taskId, () -> getTaskStatus(taskId));
   }
 
-  public String getModelSvg(String taskId, String modelName) {
-    var task = taskRepository.findById(taskId).orElseThrow(() -> new TaskNotFoundException(taskId));
-
-    if (task.getStatus() != TaskStatus.COMPLETED) {
+  /**
+   * Opens the SVG of a model (or "consensus", "rchie-consensus", "rchie-" + model name) for
+   * streaming, without loading the SVGs of the other models.
+   *
+   * @param taskId The id of the task.
+   * @param modelName The name of the SVG.
+   * @param acceptGzip Whether the client accepts gzip-compressed content.
+   * @return The SVG, compressed only if {@code acceptGzip} is true and it comes from the store.
+   * @throws IOException if the stored artifact cannot be read.
+   */
+  public ArtifactStream openModelSvg(String taskId, String modelName, boolean acceptGzip)
+      throws IOException {
+    var status =
+        taskRepository.findStatusById(taskId).orElseThrow(() -> new TaskNotFoundException(taskId));
+    if (status != TaskStatus.COMPLETED) {
       throw new IllegalStateException("Task " + taskId + " is not completed yet");
     }
 
-    var modelSvgs = task.getModelSvgs();
-    if (modelSvgs == null || !modelSvgs.containsKey(modelName)) {
-      throw new ResourceNotFoundException(
-          String.format(
-              "SVG visualization not available for model '%s' in task %s", modelName, taskId));
+    var artifactKey = taskRepository.findSvgArtifactKey(taskId, modelName);
+    if (artifactKey.isPresent()) {
+      return acceptGzip
+          ? new ArtifactStream(artifactStore.openCompressed(artifactKey.get()), true)
+          : new ArtifactStream(artifactStore.open(artifactKey.get()), false);
     }
-    return modelSvgs.get(modelName);
+
+    // Tasks computed before the artifact store keep their SVGs in the database
+    var legacySvg =
+        taskRepository
+            .findLegacyModelSvg(taskId, modelName)
+            .orElseThrow(
+                () ->
+                    new ResourceNotFoundException(
+                        String.format(
+                            "SVG visualization not available for model '%s' in task %s",
+                            modelName, taskId)));
+    return new ArtifactStream(
+        new ByteArrayInputStream(legacySvg.getBytes(StandardCharsets.UTF_8)), false);
   }
 
   /**
@@ -153,11 +212,9 @@ public class ComputeService {
         .map(
             split -> {
               try {
-                var parser = new PdbParser();
                 var sequence =
-                    parser.parse(split.content()).stream()
-                        .findFirst()
-                        .map(model -> model.filteredNewInstance(MoleculeType.RNA))
+                    structureCache
+                        .parseRnaModel(split.content())
                         .map(
                             rnaModel ->
                                 rnaModel.namedResidueIdentifiers().stream()
@@ -180,225 +237,21 @@ public class ComputeService {
   }
 
   public TablesResponse getTables(String taskId) throws Exception {
-    var task = taskRepository.findById(taskId).orElseThrow(() -> new TaskNotFoundException(taskId));
-
-    if (task.getStatus() != TaskStatus.COMPLETED) {
-      throw new IllegalStateException("Task is not completed yet");
-    }
-
-    var resultJson = task.getResult();
-    var taskResult = objectMapper.readValue(resultJson, TaskResult.class);
-    var results = taskResult.rankedModels();
-    if (results == null || results.isEmpty()) {
-      throw new IllegalStateException("No results available");
-    }
-    // var requestedMode = taskResult.requestedConsensusMode(); // No longer needed here
-
-    var totalModelCount = results.size();
-    var allInteractions =
-        results.stream()
-            .map(RankedModel::basePairsAndStackings)
-            .flatMap(List::stream)
-            .collect(Collectors.toCollection(HashBag::new));
-
-    // Collect all interactions from all models
-    var allCanonicalPairs =
-        results.stream()
-            .map(RankedModel::canonicalBasePairs)
-            .flatMap(List::stream)
-            .collect(Collectors.toList());
-
-    var allNonCanonicalPairs =
-        results.stream()
-            .map(RankedModel::nonCanonicalBasePairs)
-            .flatMap(List::stream)
-            .collect(Collectors.toList());
-
-    var allStackings =
-        results.stream()
-            .map(RankedModel::stackings)
-            .flatMap(List::stream)
-            .collect(Collectors.toList());
-
-    // Convert CSV data to structured tables
-    var rankingTable = generateRankingTable(results);
-    var canonicalTable =
-        generatePairsTable(
-            allCanonicalPairs, allInteractions, totalModelCount, taskResult.referenceStructure());
-    var nonCanonicalTable =
-        generatePairsTable(
-            allNonCanonicalPairs,
-            allInteractions,
-            totalModelCount,
-            taskResult.referenceStructure());
-    var stackingsTable = generateStackingsTable(allStackings, allInteractions, totalModelCount);
-
-    var fileNames = results.stream().map(RankedModel::name).collect(Collectors.toList());
-
-    return new TablesResponse(
-        rankingTable,
-        canonicalTable,
-        nonCanonicalTable,
-        stackingsTable,
-        fileNames,
-        taskResult.dotBracket());
-  }
-
-  private TableData generateRankingTable(List<RankedModel> models) {
-    var headers = new ArrayList<String>();
-    headers.add("File name");
-
-    // Define the desired order for ConsensusModes
-    List<ConsensusMode> orderedModes = new ArrayList<>();
-    orderedModes.add(ConsensusMode.ALL);
-    for (ConsensusMode mode : ConsensusMode.values()) {
-      if (mode != ConsensusMode.ALL) {
-        orderedModes.add(mode);
-      }
-    }
-
-    for (ConsensusMode mode : orderedModes) {
-      String displayName = getConsensusModeDisplayName(mode);
-      headers.add(String.format("Rank (%s)", displayName));
-      headers.add(String.format("INF (%s)", displayName));
-      headers.add(String.format("F1 (%s)", displayName));
-    }
-
-    var rows =
-        models.stream()
-            .map(
-                model -> {
-                  var row = new ArrayList<>();
-                  row.add(model.name());
-                  for (ConsensusMode mode : orderedModes) {
-                    row.add(model.rank().getOrDefault(mode, -1));
-                    row.add(model.interactionNetworkFidelity().getOrDefault(mode, Double.NaN));
-                    row.add(model.f1score().getOrDefault(mode, Double.NaN));
-                  }
-                  return (List<Object>) row;
-                })
-            .collect(Collectors.toList());
-    return new TableData(headers, rows);
+    return resultTablesService.getTables(taskId);
   }
 
-  private TableData generatePairsTable(
-      List<? extends AnalyzedBasePair> pairs,
-      HashBag<AnalyzedBasePair> allInteractions,
-      int totalModelCount,
-      ReferenceStructureUtil.ReferenceParseResult referenceStructure) {
-    var headers =
-        List.of(
-            "Nt1",
-            "Nt2",
-            "LW class",
-            "Confidence",
-            "Constraint match"); // "Paired in reference", "Unpaired in reference");
-    var rows =
-        pairs.stream()
-            .distinct()
-            .map(
-                pair -> {
-                  var confidence = allInteractions.getCount(pair) / (double) totalModelCount;
-                  String constraint_match =
-                      "n/a"; // if the pair existence was not stated within the reference structure
-                  if (referenceStructure
-                      .basePairs()
-                      .contains(pair.basePair())) { // pair was in ref struct and is here too
-                    constraint_match = "+";
-                  }
-                  if (referenceStructure.markedResidues().contains(pair.basePair().left())
-                      || referenceStructure
-                          .markedResidues()
-                          .contains(
-                              pair.basePair()
-                                  .right())) { // pair exists here, but was forbidden in ref
-                    // structure
-                    constraint_match = "-";
-                  }
-                  return List.<Object>of(
-                      pair.basePair().left().toString(),
-                      pair.basePair().right().toString(),
-                      pair.leontisWesthof().toString(),
-                      confidence,
-                      constraint_match
-                      // referenceStructure.basePairs().contains(pair.basePair()),
-                      // referenceStructure.markedResidues().contains(pair.basePair().left())
-                      //     ||
-                      // referenceStructure.markedResidues().contains(pair.basePair().right())
-                      );
-                })
-            .collect(Collectors.toList());
-    return new TableData(headers, rows);
+  public ModelTablesResponse getModelTables(String taskId, String filename) throws Exception {
+    return resultTablesService.getModelTables(taskId, filename);
   }
 
-  private TableData generateStackingsTable(
-      List<? extends AnalyzedBasePair> stackings,
-      HashBag<AnalyzedBasePair> allInteractions,
-      int totalModelCount) {
-    var headers = List.of("Nt1", "Nt2", "Confidence");
-    var rows =
-        stackings.stream()
-            .distinct()
-            .map(
-                stacking -> {
-                  var confidence = allInteractions.getCount(stacking) / (double) totalModelCount;
-                  return List.<Object>of(
-                      stacking.basePair().left().toString(),
-                      stacking.basePair().right().toString(),
-                      confidence);
-                })
-            .collect(Collectors.toList());
-    return new TableData(headers, rows);
+  public TablesResponse rescore(String taskId, RescoreRequest request) throws Exception {
+    return resultTablesService.summarize(
+        taskProcessorService.rescore(taskId, request.confidenceLevel(), request.dotBracket()));
   }
 
-  public ModelTablesResponse getModelTables(String taskId, String filename) throws Exception {
-    var task = taskRepository.findById(taskId).orElseThrow(() -> new TaskNotFoundException(taskId));
-
-    if (task.getStatus() != TaskStatus.COMPLETED) {
-      throw new IllegalStateException("Task is not completed yet");
-    }
-
-    var resultJson = task.getResult();
-    var taskResult = objectMapper.readValue(resultJson, TaskResult.class);
-    var results = taskResult.rankedModels();
-    if (results == null || results.isEmpty()) {
-      throw new IllegalStateException("No results available");
-    }
-
-    // Find the model with matching filename
-    var targetModel =
-        results.stream()
-            .filter(model -> model.name().equals(filename))
-            .findFirst()
-            .orElseThrow(() -> new IllegalArgumentException("Model not found: " + filename));
-
-    var totalModelCount = results.size();
-    var allInteractions =
-        results.stream()
-            .map(RankedModel::basePairsAndStackings)
-            .flatMap(List::stream)
-            .collect(Collectors.toCollection(HashBag::new));
-
-    var canonicalTable =
-        generatePairsTable(
-            targetModel.canonicalBasePairs(),
-            allInteractions,
-            totalModelCount,
-            taskResult.referenceStructure());
-    var nonCanonicalTable =
-        generatePairsTable(
-            targetModel.nonCanonicalBasePairs(),
-            allInteractions,
-            totalModelCount,
-            taskResult.referenceStructure());
-    var stackingsTable =
-        generateStackingsTable(targetModel.stackings(), allInteractions, totalModelCount);
-
-    return new ModelTablesResponse(
-        canonicalTable,
-        nonCanonicalTable,
-        stackingsTable,
-        targetModel.dotBracket()); // Already correct
+  public ConfidenceSweepResponse sweepConfidenceLevels(String taskId, ConsensusMode consensusMode)
+      throws Exception {
+    return taskProcessorService.sweepConfidenceLevels(taskId, consensusMode);
   }
 
   public JsonNode getTaskRequest(String taskId) throws IOException {
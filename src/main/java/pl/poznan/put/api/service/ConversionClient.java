@@ -2,6 +2,7 @@ package pl.poznan.put.api.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -13,7 +14,8 @@ public class ConversionClient {
   private final String serviceUrl;
 
   public ConversionClient(
-      RestTemplate restTemplate, @Value("${analysis.service.url}") String serviceUrl) {
+      @Qualifier("analysisRestTemplate") RestTemplate restTemplate,
+      @Value("${analysis.service.url}") String serviceUrl) {
     this.restTemplate = restTemplate;
     this.serviceUrl = serviceUrl + "/conversion-api/v1/bpseq2dbn";
   }
@@ -0,0 +1,127 @@
+package pl.poznan.put.api.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.poznan.put.DotBracketEncoder;
+import pl.poznan.put.api.dto.CacheStats;
+import pl.poznan.put.api.util.ContentHash;
+import pl.poznan.put.api.util.LruCache;
+import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
+import pl.poznan.put.pdb.analysis.PdbModel;
+import pl.poznan.put.structure.AnalyzedBasePair;
+import pl.poznan.put.structure.formats.BpSeq;
+import pl.poznan.put.structure.formats.DefaultDotBracketFromPdb;
+import pl.poznan.put.structure.formats.ImmutableDefaultDotBracketFromPdb;
+
+/**
+ * Converts base pairs of a model to dot-bracket notation. By default pseudoknot orders are assigned
+ * in-process by {@link DotBracketEncoder}, and the structures are cached by a hash of the number of
+ * residues and the pair set, since many models of an ensemble share the same canonical pairs. With
+ * {@code dot-bracket.converter=remote} the conversion service assigns them instead; the two may
+ * pick different orders for some pseudoknots, but always encode the same pairs.
+ */
+@Service
+public class DotBracketService {
+  private static final Logger logger = LoggerFactory.getLogger(DotBracketService.class);
+
+  private static final int KEY_LENGTH = 64;
+
+  private final ConversionClient conversionClient;
+  private final boolean remote;
+  private final LruCache<String, String> cache;
+
+  public DotBracketService(
+      ConversionClient conversionClient,
+      @Value("${dot-bracket.converter:local}") String converter,
+      @Value("${dot-bracket.cache.max-bytes:8388608}") long cacheMaxBytes) {
+    this.conversionClient = conversionClient;
+    this.remote = !"local".equalsIgnoreCase(converter);
+    logger.info("Dot-bracket conversion: {}", remote ? "remote" : "local");
+    // Keys are fixed-size hashes and structures are ASCII, so with compact strings an entry takes
+    // about one byte per character of both
+    this.cache =
+        new LruCache<>(
+            "dot-bracket", cacheMaxBytes, structure -> KEY_LENGTH + (long) structure.length());
+  }
+
+  /**
+   * @param structure3D The model whose residues make up the sequence and strands.
+   * @param basePairs The base pairs to encode, usually the canonical ones.
+   * @return The dot-bracket of the model.
+   */
+  public DefaultDotBracketFromPdb convert(
+      PdbModel structure3D, List<? extends AnalyzedBasePair> basePairs) {
+    var residues = structure3D.namedResidueIdentifiers();
+    if (remote) {
+      var bpseq = BpSeq.fromBasePairs(residues, basePairs);
+      var converted = conversionClient.convertBpseqToDotBracket(bpseq.toString());
+      var sequence = converted.split("\n")[0];
+      var structure = converted.split("\n")[1];
+      return ImmutableDefaultDotBracketFromPdb.of(sequence, structure, structure3D);
+    }
+    return convertLocally(structure3D, basePairs);
+  }
+
+  /**
+   * Converts in-process with {@link DotBracketEncoder} regardless of the configured converter, for
+   * callers that would otherwise make one remote call per model on every request.
+   *
+   * @param structure3D The model whose residues make up the sequence and strands.
+   * @param basePairs The base pairs to encode, usually the canonical ones.
+   * @return The dot-bracket of the model.
+   */
+  public DefaultDotBracketFromPdb convertLocally(
+      PdbModel structure3D, List<? extends AnalyzedBasePair> basePairs) {
+    var residues = structure3D.namedResidueIdentifiers();
+    Map<PdbNamedResidueIdentifier, Integer> indices = new HashMap<>();
+    StringBuilder sequence = new StringBuilder(residues.size());
+    for (PdbNamedResidueIdentifier residue : residues) {
+      indices.putIfAbsent(residue, indices.size());
+      sequence.append(residue.oneLetterName());
+    }
+
+    List<int[]> pairs = new ArrayList<>(basePairs.size());
+    for (AnalyzedBasePair basePair : basePairs) {
+      Integer left = indices.get(basePair.basePair().left());
+      Integer right = indices.get(basePair.basePair().right());
+      if (left == null || right == null) {
+        logger.warn("Skipping base pair of residues outside of the model: {}", basePair);
+        continue;
+      }
+      pairs.add(new int[] {Math.min(left, right), Math.max(left, right)});
+    }
+    pairs.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+
+    // The pair list grows with the structure, so the cache holds its SHA-256 instead
+    StringBuilder key = new StringBuilder().append(residues.size());
+    pairs.forEach(pair -> key.append(' ').append(pair[0]).append('-').append(pair[1]));
+    String cacheKey = ContentHash.sha256(key.toString());
+    String structure =
+        cache
+            .get(cacheKey)
+            .orElseGet(
+                () -> {
+                  String encoded = DotBracketEncoder.encode(residues.size(), pairs);
+                  cache.put(cacheKey, encoded);
+                  return encoded;
+                });
+    return ImmutableDefaultDotBracketFromPdb.of(sequence.toString(), structure, structure3D);
+  }
+
+  /**
+   * @return Whether conversions call the remote service rather than run in-process.
+   */
+  public boolean isRemote() {
+    return remote;
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+}
@@ -11,6 +11,7 @@ import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
 import org.apache.batik.util.XMLResourceDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpEntity;
@@ -34,8 +35,11 @@ public class RChieClient {
   private final ObjectMapper objectMapper;
   private final String serviceUrl;
 
-  public RChieClient(@Value("${rchie.service.url}") String serviceUrl, ObjectMapper objectMapper) {
-    this.restTemplate = new RestTemplate();
+  public RChieClient(
+      @Qualifier("rchieRestTemplate") RestTemplate restTemplate,
+      @Value("${rchie.service.url}") String serviceUrl,
+      ObjectMapper objectMapper) {
+    this.restTemplate = restTemplate;
     this.objectMapper = objectMapper;
     this.serviceUrl = serviceUrl;
     logger.info("RChieClient initialized with service URL: {}", serviceUrl);
@@ -0,0 +1,75 @@
+package pl.poznan.put.api.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.poznan.put.api.exception.VisualizationException;
+import pl.poznan.put.api.storage.ArtifactStore;
+import pl.poznan.put.rchie.RChieSvgWriter;
+import pl.poznan.put.rchie.model.RChieData;
+import pl.poznan.put.utility.svg.Format;
+import pl.poznan.put.utility.svg.SVGHelper;
+
+/**
+ * Draws {@link RChieData} as an arc diagram SVG and stores it in the {@link ArtifactStore}, either
+ * with the remote RChie service or natively with {@link RChieSvgWriter}, depending on {@code
+ * rchie.renderer}. The native drawing is streamed straight into the store, without building the
+ * document in memory.
+ */
+@Service
+public class RChieRenderingService {
+  private static final Logger logger = LoggerFactory.getLogger(RChieRenderingService.class);
+
+  private final RChieClient rChieClient;
+  private final ArtifactStore artifactStore;
+  private final boolean remote;
+
+  public RChieRenderingService(
+      RChieClient rChieClient,
+      ArtifactStore artifactStore,
+      @Value("${rchie.renderer:remote}") String renderer) {
+    this.rChieClient = rChieClient;
+    this.artifactStore = artifactStore;
+    this.remote = !"native".equalsIgnoreCase(renderer);
+    logger.info("RChie rendering: {}", remote ? "remote" : "native");
+  }
+
+  /**
+   * @param rChieData The sequence and arcs to draw.
+   * @return The key of the stored SVG drawing.
+   * @throws VisualizationException If drawing or storing fails.
+   */
+  public String renderAndStore(RChieData rChieData) throws VisualizationException {
+    if (remote) {
+      var svgDoc = rChieClient.visualize(rChieData);
+      byte[] svg;
+      try {
+        svg = SVGHelper.export(svgDoc, Format.SVG);
+      } catch (Exception e) {
+        throw new VisualizationException("Failed to export the RChie drawing", e);
+      }
+      try {
+        return artifactStore.put(svg);
+      } catch (IOException e) {
+        throw new VisualizationException("Failed to store the RChie drawing", e);
+      }
+    }
+
+    try {
+      return artifactStore.put(
+          output -> {
+            Writer writer =
+                new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            RChieSvgWriter.write(rChieData, writer);
+          });
+    } catch (IOException e) {
+      throw new VisualizationException("Failed to write the RChie drawing", e);
+    }
+  }
+}
@@ -0,0 +1,323 @@
+package pl.poznan.put.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.commons.collections4.bag.HashBag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.poznan.put.ConsensusMode;
+import pl.poznan.put.RankedModel;
+import pl.poznan.put.api.dto.CacheStats;
+import pl.poznan.put.api.dto.ModelTablesResponse;
+import pl.poznan.put.api.dto.ResultTables;
+import pl.poznan.put.api.dto.TableData;
+import pl.poznan.put.api.dto.TablesResponse;
+import pl.poznan.put.api.dto.TaskResult;
+import pl.poznan.put.api.exception.TaskNotFoundException;
+import pl.poznan.put.api.model.TaskStatus;
+import pl.poznan.put.api.repository.TaskRepository;
+import pl.poznan.put.api.util.LruCache;
+import pl.poznan.put.api.util.ReferenceStructureUtil;
+import pl.poznan.put.structure.AnalyzedBasePair;
+
+/**
+ * Builds the ranking, canonical, non-canonical and stacking tables of a task once, when the task
+ * completes, and serves them through a read-through cache bounded by the total number of rows.
+ * Tasks completed before the tables were stored get them built and saved on the first read.
+ */
+@Service
+public class ResultTablesService {
+  private static final Logger logger = LoggerFactory.getLogger(ResultTablesService.class);
+
+  private final TaskRepository taskRepository;
+  private final ObjectMapper objectMapper;
+  private final LruCache<String, ResultTables> cache;
+
+  public ResultTablesService(
+      TaskRepository taskRepository,
+      ObjectMapper objectMapper,
+      @Value("${result-tables.cache.max-rows:500000}") long maxRows) {
+    this.taskRepository = taskRepository;
+    this.objectMapper = objectMapper;
+    this.cache = new LruCache<>("result-tables", maxRows, ResultTablesService::weigh);
+  }
+
+  private static long weigh(ResultTables tables) {
+    var summary = tables.summary();
+    long rows =
+        summary.ranking().rows().size()
+            + summary.canonicalPairs().rows().size()
+            + summary.nonCanonicalPairs().rows().size()
+            + summary.stackings().rows().size();
+    for (var model : tables.models().values()) {
+      rows +=
+          model.canonicalPairs().length
+              + model.nonCanonicalPairs().length
+              + model.stackings().length;
+    }
+    return rows;
+  }
+
+  /**
+   * Builds the tables of a task result and serializes them for storage in the task.
+   *
+   * @param taskResult The result of the task.
+   * @return The tables as JSON.
+   * @throws JsonProcessingException if the tables cannot be serialized.
+   */
+  public String serialize(TaskResult taskResult) throws JsonProcessingException {
+    return objectMapper.writeValueAsString(build(taskResult));
+  }
+
+  /**
+   * Builds the summary tables of a result which is not stored, e.g. one recomputed for other
+   * parameters.
+   */
+  public TablesResponse summarize(TaskResult taskResult) {
+    return build(taskResult).summary();
+  }
+
+  public TablesResponse getTables(String taskId) throws Exception {
+    return load(taskId).summary();
+  }
+
+  public ModelTablesResponse getModelTables(String taskId, String filename) throws Exception {
+    var tables = load(taskId);
+    var rows = tables.models().get(filename);
+    if (rows == null) {
+      throw new IllegalArgumentException("Model not found: " + filename);
+    }
+
+    var summary = tables.summary();
+    return new ModelTablesResponse(
+        select(summary.canonicalPairs(), rows.canonicalPairs()),
+        select(summary.nonCanonicalPairs(), rows.nonCanonicalPairs()),
+        select(summary.stackings(), rows.stackings()),
+        rows.dotBracket());
+  }
+
+  /** Drops the cached tables of a task, for example once the task is deleted. */
+  public void evict(String taskId) {
+    cache.invalidate(taskId);
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  private ResultTables load(String taskId) throws Exception {
+    Optional<ResultTables> cached = cache.get(taskId);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+
+    var status =
+        taskRepository.findStatusById(taskId).orElseThrow(() -> new TaskNotFoundException(taskId));
+    if (status != TaskStatus.COMPLETED) {
+      throw new IllegalStateException("Task is not completed yet");
+    }
+
+    ResultTables tables;
+    var storedJson = taskRepository.findResultTablesById(taskId);
+    if (storedJson.isPresent()) {
+      tables = objectMapper.readValue(storedJson.get(), ResultTables.class);
+    } else {
+      logger.info("Building result tables of task {} completed before they were stored", taskId);
+      var resultJson =
+          taskRepository
+              .findResultById(taskId)
+              .orElseThrow(() -> new IllegalStateException("No results available"));
+      tables = build(objectMapper.readValue(resultJson, TaskResult.class));
+      taskRepository.updateResultTables(taskId, objectMapper.writeValueAsString(tables));
+    }
+
+    cache.put(taskId, tables);
+    return tables;
+  }
+
+  private ResultTables build(TaskResult taskResult) {
+    var results = taskResult.rankedModels();
+    if (results == null || results.isEmpty()) {
+      throw new IllegalStateException("No results available");
+    }
+
+    var totalModelCount = results.size();
+    var allInteractions =
+        results.stream()
+            .map(RankedModel::basePairsAndStackings)
+            .flatMap(List::stream)
+            .collect(Collectors.toCollection(HashBag::new));
+
+    // Distinct interactions of all models in order of first appearance, each with its row index
+    var canonicalRows = indexDistinct(results, RankedModel::canonicalBasePairs);
+    var nonCanonicalRows = indexDistinct(results, RankedModel::nonCanonicalBasePairs);
+    var stackingRows = indexDistinct(results, RankedModel::stackings);
+
+    var summary =
+        new TablesResponse(
+            generateRankingTable(results),
+            generatePairsTable(
+                canonicalRows.keySet(),
+                allInteractions,
+                totalModelCount,
+                taskResult.referenceStructure()),
+            generatePairsTable(
+                nonCanonicalRows.keySet(),
+                allInteractions,
+                totalModelCount,
+                taskResult.referenceStructure()),
+            generateStackingsTable(stackingRows.keySet(), allInteractions, totalModelCount),
+            results.stream().map(RankedModel::name).collect(Collectors.toList()),
+            taskResult.dotBracket());
+
+    var models = new HashMap<String, ResultTables.ModelRows>();
+    for (var model : results) {
+      models.put(
+          model.name(),
+          new ResultTables.ModelRows(
+              rowsOf(model.canonicalBasePairs(), canonicalRows),
+              rowsOf(model.nonCanonicalBasePairs(), nonCanonicalRows),
+              rowsOf(model.stackings(), stackingRows),
+              model.dotBracket()));
+    }
+    return new ResultTables(summary, models);
+  }
+
+  private static LinkedHashMap<AnalyzedBasePair, Integer> indexDistinct(
+      List<RankedModel> models,
+      Function<RankedModel, List<? extends AnalyzedBasePair>> interactions) {
+    var index = new LinkedHashMap<AnalyzedBasePair, Integer>();
+    for (var model : models) {
+      for (var interaction : interactions.apply(model)) {
+        index.putIfAbsent(interaction, index.size());
+      }
+    }
+    return index;
+  }
+
+  private static int[] rowsOf(
+      List<? extends AnalyzedBasePair> interactions, Map<AnalyzedBasePair, Integer> index) {
+    return interactions.stream().distinct().mapToInt(index::get).toArray();
+  }
+
+  private static TableData select(TableData table, int[] rows) {
+    return new TableData(
+        table.headers(), Arrays.stream(rows).mapToObj(table.rows()::get).toList());
+  }
+
+  private String getConsensusModeDisplayName(ConsensusMode mode) {
+    return switch (mode) {
+      case ALL -> "All";
+      case CANONICAL -> "Canonical";
+      case NON_CANONICAL -> "Non-canonical";
+      case STACKING -> "Stacking";
+      default -> mode.name(); // Fallback to enum name if new modes are added
+    };
+  }
+
+  private TableData generateRankingTable(List<RankedModel> models) {
+    var headers = new ArrayList<String>();
+    headers.add("File name");
+
+    // Define the desired order for ConsensusModes
+    List<ConsensusMode> orderedModes = new ArrayList<>();
+    orderedModes.add(ConsensusMode.ALL);
+    for (ConsensusMode mode : ConsensusMode.values()) {
+      if (mode != ConsensusMode.ALL) {
+        orderedModes.add(mode);
+      }
+    }
+
+    for (ConsensusMode mode : orderedModes) {
+      String displayName = getConsensusModeDisplayName(mode);
+      headers.add(String.format("Rank (%s)", displayName));
+      headers.add(String.format("INF (%s)", displayName));
+      headers.add(String.format("F1 (%s)", displayName));
+    }
+
+    var rows =
+        models.stream()
+            .map(
+                model -> {
+                  var row = new ArrayList<>();
+                  row.add(model.name());
+                  for (ConsensusMode mode : orderedModes) {
+                    row.add(model.rank().getOrDefault(mode, -1));
+                    row.add(model.interactionNetworkFidelity().getOrDefault(mode, Double.NaN));
+                    row.add(model.f1score().getOrDefault(mode, Double.NaN));
+                  }
+                  return (List<Object>) row;
+                })
+            .collect(Collectors.toList());
+    return new TableData(headers, rows);
+  }
+
+  private TableData generatePairsTable(
+      Collection<? extends AnalyzedBasePair> pairs,
+      HashBag<AnalyzedBasePair> allInteractions,
+      int totalModelCount,
+      ReferenceStructureUtil.ReferenceParseResult referenceStructure) {
+    var headers = List.of("Nt1", "Nt2", "LW class", "Confidence", "Constraint match");
+    var rows =
+        pairs.stream()
+            .map(
+                pair -> {
+                  var confidence = allInteractions.getCount(pair) / (double) totalModelCount;
+                  String constraint_match =
+                      "n/a"; // if the pair existence was not stated within the reference structure
+                  if (referenceStructure
+                      .basePairs()
+                      .contains(pair.basePair())) { // pair was in ref struct and is here too
+                    constraint_match = "+";
+                  }
+                  if (referenceStructure.markedResidues().contains(pair.basePair().left())
+                      || referenceStructure
+                          .markedResidues()
+                          .contains(
+                              pair.basePair()
+                                  .right())) { // pair exists here, but was forbidden in ref
+                    // structure
+                    constraint_match = "-";
+                  }
+                  return List.<Object>of(
+                      pair.basePair().left().toString(),
+                      pair.basePair().right().toString(),
+                      pair.leontisWesthof().toString(),
+                      confidence,
+                      constraint_match);
+                })
+            .collect(Collectors.toList());
+    return new TableData(headers, rows);
+  }
+
+  private TableData generateStackingsTable(
+      Collection<? extends AnalyzedBasePair> stackings,
+      HashBag<AnalyzedBasePair> allInteractions,
+      int totalModelCount) {
+    var headers = List.of("Nt1", "Nt2", "Confidence");
+    var rows =
+        stackings.stream()
+            .map(
+                stacking -> {
+                  var confidence = allInteractions.getCount(stacking) / (double) totalModelCount;
+                  return List.<Object>of(
+                      stacking.basePair().left().toString(),
+                      stacking.basePair().right().toString(),
+                      confidence);
+                })
+            .collect(Collectors.toList());
+    return new TableData(headers, rows);
+  }
+}
@@ -15,6 +15,7 @@ import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpEntity;
@@ -35,8 +36,10 @@ public class RnapolisClient {
   private final RestTemplate restTemplate;
   private final String serviceUrl;
 
-  public RnapolisClient(@Value("${rnapolis.service.url}") String serviceUrl) {
-    this.restTemplate = new RestTemplate();
+  public RnapolisClient(
+      @Qualifier("rnapolisRestTemplate") RestTemplate restTemplate,
+      @Value("${rnapolis.service.url}") String serviceUrl) {
+    this.restTemplate = restTemplate;
     this.serviceUrl = serviceUrl;
     logger.info("RnapolisClient initialized with service URL: {}", serviceUrl);
   }
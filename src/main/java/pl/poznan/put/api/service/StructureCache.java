@@ -0,0 +1,57 @@
+package pl.poznan.put.api.service;
+
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.poznan.put.api.dto.CacheStats;
+import pl.poznan.put.api.util.ContentHash;
+import pl.poznan.put.api.util.LruCache;
+import pl.poznan.put.pdb.analysis.MoleculeType;
+import pl.poznan.put.pdb.analysis.PdbModel;
+import pl.poznan.put.pdb.analysis.PdbParser;
+
+/**
+ * Parsed, RNA-filtered models keyed by the SHA-256 of their PDB content. Shared by the split
+ * endpoint and the compute pipeline, so models which were split and then submitted are parsed
+ * once. The cache is bounded by the total number of atoms of the cached models.
+ */
+@Service
+public class StructureCache {
+  private static final Logger logger = LoggerFactory.getLogger(StructureCache.class);
+
+  private final LruCache<String, PdbModel> cache;
+
+  public StructureCache(@Value("${structure-cache.max-atoms:1000000}") long maxAtoms) {
+    this.cache = new LruCache<>("structure", maxAtoms, model -> model.atoms().size());
+  }
+
+  /**
+   * Returns the first model of the PDB content limited to RNA, parsing it only if it is not
+   * cached yet. The returned model is shared and must not be modified.
+   *
+   * @param content The PDB content.
+   * @return The RNA model or empty if the content contains no model.
+   */
+  public Optional<PdbModel> parseRnaModel(String content) {
+    String key = ContentHash.sha256(content);
+    Optional<PdbModel> cached = cache.get(key);
+    if (cached.isPresent()) {
+      logger.trace("Parsed structure {} found in cache", key);
+      return cached;
+    }
+
+    Optional<PdbModel> parsed =
+        new PdbParser()
+            .parse(content).stream()
+                .findFirst()
+                .map(model -> model.filteredNewInstance(MoleculeType.RNA));
+    parsed.ifPresent(model -> cache.put(key, model));
+    return parsed;
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+}
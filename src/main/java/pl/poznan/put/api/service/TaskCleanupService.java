@@ -1,22 +1,66 @@
 package pl.poznan.put.api.service;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import pl.poznan.put.api.repository.TaskRepository;
+import pl.poznan.put.api.storage.ArtifactStore;
 
 @Service
 public class TaskCleanupService {
+  private static final Logger logger = LoggerFactory.getLogger(TaskCleanupService.class);
+
   private final TaskRepository taskRepository;
+  private final AnalysisCacheService analysisCacheService;
+  private final ArtifactStore artifactStore;
+  private final ResultTablesService resultTablesService;
 
-  public TaskCleanupService(TaskRepository taskRepository) {
+  public TaskCleanupService(
+      TaskRepository taskRepository,
+      AnalysisCacheService analysisCacheService,
+      ArtifactStore artifactStore,
+      ResultTablesService resultTablesService) {
     this.taskRepository = taskRepository;
+    this.analysisCacheService = analysisCacheService;
+    this.artifactStore = artifactStore;
+    this.resultTablesService = resultTablesService;
   }
 
+  /** Deletes old tasks, cache entries and artifacts, each step even if an earlier one fails. */
   @Scheduled(cron = "0 0 0 * * ?") // Every day at midnight
   public void cleanUpOldTasks() {
     Instant cutoff = Instant.now().minus(14, ChronoUnit.DAYS);
-    taskRepository.deleteTasksOlderThan(cutoff);
+    try {
+      List<String> taskIds = taskRepository.findIdsOlderThan(cutoff);
+      taskRepository.deleteTasksOlderThan(cutoff);
+      // Tables cached for deleted tasks would only be dropped once they are the least recently used
+      taskIds.forEach(resultTablesService::evict);
+      logger.info("Deleted {} tasks older than {}", taskIds.size(), cutoff);
+    } catch (RuntimeException e) {
+      logger.error("Failed to delete tasks older than {}", cutoff, e);
+    }
+
+    try {
+      analysisCacheService.cleanUpOldEntries();
+    } catch (RuntimeException e) {
+      logger.error("Failed to clean up the analysis cache", e);
+    }
+
+    // Artifacts are shared between tasks, including clones of completed tasks which refer to them
+    // without writing them, so every artifact referenced by a remaining task is kept. The cutoff
+    // keeps the artifacts of running tasks, whose keys are saved only once they complete.
+    try {
+      int deleted =
+          artifactStore.deleteUnusedSince(
+              cutoff.minus(1, ChronoUnit.DAYS), taskRepository.findAllSvgArtifactKeys());
+      logger.info("Deleted {} unused artifacts", deleted);
+    } catch (IOException | RuntimeException e) {
+      logger.error("Failed to clean up the artifact store", e);
+    }
   }
 }
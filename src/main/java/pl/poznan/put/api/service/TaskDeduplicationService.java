@@ -0,0 +1,104 @@
+package pl.poznan.put.api.service;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.poznan.put.api.dto.ComputeRequest;
+import pl.poznan.put.api.dto.FileData;
+import pl.poznan.put.api.model.Task;
+import pl.poznan.put.api.model.TaskStatus;
+import pl.poznan.put.api.repository.TaskRepository;
+import pl.poznan.put.api.util.ContentHash;
+
+/**
+ * Detects identical compute requests. A request identical to one still being processed is
+ * attached to the running task, and one identical to a completed request gets a copy of its
+ * result without any processing.
+ */
+@Service
+public class TaskDeduplicationService {
+  private static final Logger logger = LoggerFactory.getLogger(TaskDeduplicationService.class);
+
+  private final TaskRepository taskRepository;
+  private final ConcurrentMap<String, String> inFlightTasks = new ConcurrentHashMap<>();
+
+  public TaskDeduplicationService(TaskRepository taskRepository) {
+    this.taskRepository = taskRepository;
+  }
+
+  /**
+   * Computes a canonical hash of everything that influences the result of a request: names and
+   * contents of the files (in order, as the first model is used as a template), the confidence
+   * level, the analyzer, the reference dot-bracket and the MolProbity filter.
+   *
+   * @param request The request to hash.
+   * @return The SHA-256 of the canonical form of the request.
+   */
+  public String hashOf(ComputeRequest request) {
+    StringBuilder builder = new StringBuilder();
+    for (FileData file : request.files()) {
+      appendField(builder, file.name());
+      appendField(builder, Boolean.toString(file.isBinary()));
+      appendField(builder, ContentHash.sha256(file.content()));
+    }
+    appendField(builder, String.valueOf(request.confidenceLevel()));
+    appendField(builder, request.analyzer().name());
+    appendField(builder, request.dotBracket() == null ? "" : request.dotBracket().strip());
+    appendField(builder, request.molProbityFilter().name());
+    return ContentHash.sha256(builder.toString());
+  }
+
+  /**
+   * Registers a new task as the one processing requests with the given hash.
+   *
+   * @param requestHash The hash of the request.
+   * @param taskId The id of the new task.
+   * @return The id of an already running task for the same request, if there is one. The new task
+   *     is not registered then.
+   */
+  public Optional<String> registerInFlight(String requestHash, String taskId) {
+    String existing = inFlightTasks.putIfAbsent(requestHash, taskId);
+    if (existing != null) {
+      logger.info("Request {} is already being processed by task {}", requestHash, existing);
+    }
+    return Optional.ofNullable(existing);
+  }
+
+  public void unregisterInFlight(String requestHash, String taskId) {
+    inFlightTasks.remove(requestHash, taskId);
+  }
+
+  /**
+   * Creates a completed task with the results of the latest completed task for the same request.
+   *
+   * @param requestHash The hash of the request.
+   * @return The id of the new task, if a completed task for the same request exists.
+   */
+  @Transactional
+  public Optional<String> cloneCompletedTask(String requestHash) {
+    return taskRepository
+        .findFirstByRequestHashAndStatusOrderByCreatedAtDesc(requestHash, TaskStatus.COMPLETED)
+        .filter(source -> source.getResult() != null)
+        .map(
+            source -> {
+              Task clone = new Task();
+              clone.copyResultsFrom(source);
+              taskRepository.save(clone);
+              logger.info(
+                  "Request {} was already completed by task {}, cloned into task {}",
+                  requestHash,
+                  source.getId(),
+                  clone.getId());
+              return clone.getId();
+            });
+  }
+
+  private static void appendField(StringBuilder builder, String value) {
+    // Length-prefixed, so that no two different requests share a canonical form
+    builder.append(value.length()).append(':').append(value).append(';');
+  }
+}
@@ -0,0 +1,235 @@
+package pl.poznan.put.api.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pl.poznan.put.api.dto.StageEvent;
+import pl.poznan.put.api.dto.TaskStatusResponse;
+import pl.poznan.put.api.model.TaskStatus;
+
+/**
+ * Pushes task events to Server-Sent Events subscribers. Emitters are asynchronous, so a subscriber
+ * does not hold a servlet thread while waiting. Events:
+ *
+ * <ul>
+ *   <li>{@code status} - the full status, sent on subscription and when the task finishes,
+ *   <li>{@code progress} - the full status, sent on every progress update,
+ *   <li>{@code stage} - a stage of the pipeline started or finished.
+ * </ul>
+ *
+ * <p>Publishing only enqueues the event: every subscriber has its own queue, drained in order on
+ * the {@code taskEventExecutor}, so callers (which may hold the task lock) never wait for a slow
+ * client. A subscriber falling more than {@code task-events.max-queued} events behind is dropped.
+ */
+@Service
+public class TaskEventPublisher {
+  private static final Logger logger = LoggerFactory.getLogger(TaskEventPublisher.class);
+
+  private final long timeoutMillis;
+  private final int maxQueued;
+  private final Executor taskEventExecutor;
+  private final ConcurrentMap<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+  public TaskEventPublisher(
+      @Value("${task-events.timeout-ms:1800000}") long timeoutMillis,
+      @Value("${task-events.max-queued:256}") int maxQueued,
+      @Qualifier("taskEventExecutor") Executor taskEventExecutor) {
+    this.timeoutMillis = timeoutMillis;
+    this.maxQueued = maxQueued;
+    this.taskEventExecutor = taskEventExecutor;
+  }
+
+  /**
+   * Subscribes to the events of a task.
+   *
+   * <p>The subscriber is registered before the current status is read. A task finishing in
+   * between either publishes its final status to the subscriber, or is already finished when the
+   * status is read, and then the emitter is completed right after sending it.
+   *
+   * @param taskId The id of the task.
+   * @param currentStatus Reads the status of the task, may throw if there is no such task.
+   * @return The emitter, completed after the current status if the task is already finished.
+   */
+  public SseEmitter subscribe(String taskId, Supplier<TaskStatusResponse> currentStatus) {
+    SseEmitter emitter = new SseEmitter(timeoutMillis);
+    Subscriber subscriber = new Subscriber(taskId, emitter);
+    // Atomic with the removal in publishFinalStatus, so it never adds to an already removed list
+    subscribers.compute(
+        taskId,
+        (ignored, taskSubscribers) -> {
+          List<Subscriber> list =
+              taskSubscribers == null ? new CopyOnWriteArrayList<>() : taskSubscribers;
+          list.add(subscriber);
+          return list;
+        });
+
+    TaskStatusResponse status;
+    try {
+      status = currentStatus.get();
+    } catch (RuntimeException e) {
+      unsubscribe(subscriber);
+      throw e;
+    }
+    emitter.onCompletion(() -> unsubscribe(subscriber));
+    emitter.onTimeout(() -> unsubscribe(subscriber));
+    emitter.onError(throwable -> unsubscribe(subscriber));
+
+    subscriber.start(event("status", status), isFinished(status));
+    return emitter;
+  }
+
+  public void publishProgress(TaskStatusResponse status) {
+    broadcast(status.taskId(), "progress", status);
+  }
+
+  public void publishStage(String taskId, StageEvent stageEvent) {
+    broadcast(taskId, "stage", stageEvent);
+  }
+
+  /** Sends the final status of a task and closes all its streams. */
+  public void publishFinalStatus(TaskStatusResponse status) {
+    List<Subscriber> taskSubscribers = subscribers.remove(status.taskId());
+    if (taskSubscribers == null) {
+      return;
+    }
+    for (Subscriber subscriber : taskSubscribers) {
+      subscriber.enqueue(event("status", status), true);
+    }
+  }
+
+  /** Keeps idle streams open through proxies which close silent connections. */
+  @Scheduled(fixedDelayString = "${task-events.heartbeat-ms:15000}")
+  public void sendHeartbeats() {
+    subscribers.forEach(
+        (taskId, taskSubscribers) -> {
+          for (Subscriber subscriber : taskSubscribers) {
+            subscriber.enqueue(SseEmitter.event().comment("heartbeat"), false);
+          }
+        });
+  }
+
+  private void broadcast(String taskId, String eventName, Object data) {
+    List<Subscriber> taskSubscribers = subscribers.get(taskId);
+    if (taskSubscribers == null) {
+      return;
+    }
+    for (Subscriber subscriber : taskSubscribers) {
+      subscriber.enqueue(event(eventName, data), false);
+    }
+  }
+
+  private void unsubscribe(Subscriber subscriber) {
+    subscribers.computeIfPresent(
+        subscriber.taskId,
+        (ignored, taskSubscribers) -> {
+          taskSubscribers.remove(subscriber);
+          return taskSubscribers.isEmpty() ? null : taskSubscribers;
+        });
+  }
+
+  private static SseEmitter.SseEventBuilder event(String eventName, Object data) {
+    return SseEmitter.event().name(eventName).data(data);
+  }
+
+  private static boolean isFinished(TaskStatusResponse status) {
+    return status.status() == TaskStatus.COMPLETED || status.status() == TaskStatus.FAILED;
+  }
+
+  private record Outgoing(SseEmitter.SseEventBuilder event, boolean complete) {}
+
+  /**
+   * An emitter with its queue of events, drained by at most one executor thread at a time. Events
+   * published before the current status was read are held back until it is sent first.
+   */
+  private final class Subscriber {
+    private final String taskId;
+    private final SseEmitter emitter;
+    private final ConcurrentLinkedDeque<Outgoing> queue = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean started;
+    private volatile boolean closed;
+
+    Subscriber(String taskId, SseEmitter emitter) {
+      this.taskId = taskId;
+      this.emitter = emitter;
+    }
+
+    /** Sends the current status ahead of any event queued since the subscription. */
+    void start(SseEmitter.SseEventBuilder event, boolean complete) {
+      queued.incrementAndGet();
+      queue.addFirst(new Outgoing(event, complete));
+      started = true;
+      scheduleDrain();
+    }
+
+    void enqueue(SseEmitter.SseEventBuilder event, boolean complete) {
+      if (closed) {
+        return;
+      }
+      if (queued.incrementAndGet() > maxQueued) {
+        logger.debug("Dropping event subscriber of task {}: too many queued events", taskId);
+        close();
+        emitter.complete();
+        return;
+      }
+      queue.addLast(new Outgoing(event, complete));
+      if (started) {
+        scheduleDrain();
+      }
+    }
+
+    private void scheduleDrain() {
+      if (draining.compareAndSet(false, true)) {
+        taskEventExecutor.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      do {
+        Outgoing outgoing;
+        while ((outgoing = queue.poll()) != null) {
+          queued.decrementAndGet();
+          if (!closed) {
+            send(outgoing);
+          }
+        }
+        draining.set(false);
+        // An event enqueued after the last poll but before the flag was cleared is still ours
+      } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    private void send(Outgoing outgoing) {
+      try {
+        emitter.send(outgoing.event());
+        if (outgoing.complete()) {
+          close();
+          emitter.complete();
+        }
+      } catch (IOException | IllegalStateException e) {
+        // The client went away or the emitter is already completed
+        logger.debug("Dropping event subscriber of task {}: {}", taskId, e.getMessage());
+        close();
+      }
+    }
+
+    private void close() {
+      closed = true;
+      unsubscribe(this);
+    }
+  }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.orsay.lri.varna.models.rna.ModeleBP;
 import java.awt.*;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -12,32 +13,51 @@ import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import net.mahdilamb.colormap.Colormap;
 import net.mahdilamb.colormap.Colormaps;
-import org.apache.commons.collections4.MultiValuedMap;
-import org.apache.commons.collections4.bag.HashBag;
-import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.RestTemplate;
 import pl.poznan.put.*;
 import pl.poznan.put.ConsensusInteraction;
 import pl.poznan.put.ConsensusInteraction.InteractionCategory;
+import pl.poznan.put.api.consensus.ConsensusSetMemo;
+import pl.poznan.put.api.consensus.InteractionConflicts;
+import pl.poznan.put.api.consensus.InteractionKeys;
+import pl.poznan.put.api.consensus.LongIntCountMap;
+import pl.poznan.put.api.consensus.ResidueInterner;
 import pl.poznan.put.api.dto.ComputeRequest;
+import pl.poznan.put.api.dto.ConfidenceSweepResponse;
 import pl.poznan.put.api.dto.FileData;
+import pl.poznan.put.api.dto.InteractionSnapshot;
+import pl.poznan.put.api.dto.StageEvent;
 import pl.poznan.put.api.dto.TaskResult;
 import pl.poznan.put.api.exception.TaskNotFoundException;
 import pl.poznan.put.api.model.MolProbityFilter;
 import pl.poznan.put.api.model.Task;
 import pl.poznan.put.api.model.TaskStatus;
+import pl.poznan.put.api.pipeline.StageGraph;
+import pl.poznan.put.api.pipeline.StageListener;
 import pl.poznan.put.api.repository.TaskRepository;
+import pl.poznan.put.api.storage.ArtifactStore;
 import pl.poznan.put.api.util.ReferenceStructureUtil;
 import pl.poznan.put.model.BaseInteractions;
 import pl.poznan.put.model.BasePair;
@@ -56,8 +76,6 @@ import pl.poznan.put.structure.ClassifiedBasePair;
 import pl.poznan.put.structure.ImmutableAnalyzedBasePair;
 import pl.poznan.put.structure.ImmutableBasePair;
 import pl.poznan.put.structure.formats.*;
-import pl.poznan.put.utility.svg.Format;
-import pl.poznan.put.utility.svg.SVGHelper;
 import pl.poznan.put.varna.model.Nucleotide;
 import pl.poznan.put.varna.model.StructureData;
 
@@ -76,12 +94,20 @@ public class TaskProcessorService {
    * @return true if the base pair is canonical, false otherwise
    */
   private static boolean isCanonical(ClassifiedBasePair basePair) {
-    if (basePair.leontisWesthof() != LeontisWesthof.CWW) {
+    return isCanonical(
+        basePair.leontisWesthof(), basePair.basePair().left(), basePair.basePair().right());
+  }
+
+  private static boolean isCanonical(
+      LeontisWesthof leontisWesthof,
+      PdbNamedResidueIdentifier left,
+      PdbNamedResidueIdentifier right) {
+    if (leontisWesthof != LeontisWesthof.CWW) {
       return false;
     }
 
-    char leftNt = basePair.basePair().left().oneLetterName();
-    char rightNt = basePair.basePair().right().oneLetterName();
+    char leftNt = left.oneLetterName();
+    char rightNt = right.oneLetterName();
 
     String sequence = leftNt < rightNt ? "" + leftNt + rightNt : "" + rightNt + leftNt;
 
@@ -90,31 +116,66 @@ public class TaskProcessorService {
 
   private final TaskRepository taskRepository;
   private final ObjectMapper objectMapper;
-  private final AnalysisClient analysisClient;
-  private final ConversionClient conversionClient;
+  private final AnalysisCacheService analysisCacheService;
+  private final StructureCache structureCache;
+  private final DotBracketService dotBracketService;
   private final RnapolisClient rnapolisClient;
-  private final VarnaTzClient varnaTzClient;
-  private final RChieClient rChieClient;
-  private final TaskProgressPersistenceService taskProgressPersistenceService; // Inject new service
+  private final VarnaRenderingService varnaRenderingService;
+  private final RChieRenderingService rChieRenderingService;
+  private final TaskProgressRegistry taskProgressRegistry;
+  private final TaskEventPublisher taskEventPublisher;
+  private final ArtifactStore artifactStore;
+  private final ResultTablesService resultTablesService;
+  private final Executor pipelineExecutor;
+  private final Executor remoteIoExecutor;
+  private final ForkJoinPool scoringPool;
+  private final RestTemplate rnalyzerRestTemplate;
+  private final boolean streamingEnabled;
+  private final int streamingWindow;
+  private final ModelRanking modelRanking;
 
   @Autowired
   public TaskProcessorService(
       TaskRepository taskRepository,
       ObjectMapper objectMapper,
-      AnalysisClient analysisClient,
-      ConversionClient conversionClient,
+      AnalysisCacheService analysisCacheService,
+      StructureCache structureCache,
+      DotBracketService dotBracketService,
       RnapolisClient rnapolisClient,
-      VarnaTzClient varnaTzClient,
-      RChieClient rChieClient,
-      TaskProgressPersistenceService taskProgressPersistenceService) { // Add to constructor
+      VarnaRenderingService varnaRenderingService,
+      RChieRenderingService rChieRenderingService,
+      TaskProgressRegistry taskProgressRegistry,
+      TaskEventPublisher taskEventPublisher,
+      ArtifactStore artifactStore,
+      ResultTablesService resultTablesService,
+      @Qualifier("pipelineExecutor") Executor pipelineExecutor,
+      @Qualifier("remoteIoExecutor") Executor remoteIoExecutor,
+      @Qualifier("scoringPool") ForkJoinPool scoringPool,
+      @Qualifier("rnalyzerRestTemplate") RestTemplate rnalyzerRestTemplate,
+      @Value("${pipeline.streaming.enabled:true}") boolean streamingEnabled,
+      @Value("${pipeline.streaming.window:16}") int streamingWindow,
+      @Value("${ranking.method:COMPETITION}") ModelRanking.Method rankingMethod,
+      @Value("${ranking.tie-tolerance:0}") double rankingTieTolerance,
+      @Value("${ranking.f1-tie-break:false}") boolean rankingF1TieBreak) {
     this.taskRepository = taskRepository;
     this.objectMapper = objectMapper;
-    this.analysisClient = analysisClient;
-    this.conversionClient = conversionClient;
+    this.analysisCacheService = analysisCacheService;
+    this.structureCache = structureCache;
+    this.dotBracketService = dotBracketService;
     this.rnapolisClient = rnapolisClient;
-    this.varnaTzClient = varnaTzClient;
-    this.rChieClient = rChieClient;
-    this.taskProgressPersistenceService = taskProgressPersistenceService; // Assign injected service
+    this.varnaRenderingService = varnaRenderingService;
+    this.rChieRenderingService = rChieRenderingService;
+    this.taskProgressRegistry = taskProgressRegistry;
+    this.taskEventPublisher = taskEventPublisher;
+    this.artifactStore = artifactStore;
+    this.resultTablesService = resultTablesService;
+    this.pipelineExecutor = pipelineExecutor;
+    this.remoteIoExecutor = remoteIoExecutor;
+    this.scoringPool = scoringPool;
+    this.rnalyzerRestTemplate = rnalyzerRestTemplate;
+    this.streamingEnabled = streamingEnabled;
+    this.streamingWindow = Math.max(1, streamingWindow);
+    this.modelRanking = new ModelRanking(rankingMethod, rankingTieTolerance, rankingF1TieBreak);
   }
 
   private void updateTaskProgress(
@@ -123,24 +184,30 @@ public class TaskProcessorService {
       int totalSteps,
       String messageFormat,
       Object... args) {
-    int currentStepValue = currentStepCounter.incrementAndGet();
-    int finalCurrentStep = Math.min(currentStepValue, totalSteps);
     String formattedMessage = String.format(messageFormat, args);
 
-    // Call the persistProgressUpdate method on the new dedicated service.
-    // This ensures the update runs in a new transaction and is visible immediately.
-    taskProgressPersistenceService.persistProgressUpdate(
-        task.getId(), finalCurrentStep, totalSteps, formattedMessage);
-
-    // Also, update the state of the 'task' object instance being used within processTaskAsync.
-    // This ensures that any subsequent logic in processTaskAsync that reads these fields
-    // from its local 'task' instance sees the updated values.
-    task.setCurrentProgress(finalCurrentStep);
-    task.setProgressMessage(formattedMessage);
-    // The logger line from persistProgressUpdate will now cover the persisted state.
-    // We can add a local log if desired, but it might be redundant.
-    // logger.info("Task {} progress (local instance updated): [{}/{}] {}", task.getId(),
-    // task.getCurrentProgress(), task.getTotalProgressSteps(), formattedMessage);
+    // Stages of the pipeline may report progress concurrently, so increments and persisted
+    // updates are serialized per task to keep the stored progress monotonic.
+    synchronized (task) {
+      int currentStepValue = currentStepCounter.incrementAndGet();
+      int finalCurrentStep = Math.min(currentStepValue, totalSteps);
+
+      // Publish the progress through the in-memory registry. Status reads see it immediately,
+      // while the database is updated in batches by the registry's periodic flush.
+      taskProgressRegistry.update(task, finalCurrentStep, totalSteps, formattedMessage);
+
+      // Also, update the state of the 'task' object instance being used within processTaskAsync.
+      // This ensures that any subsequent logic in processTaskAsync that reads these fields
+      // from its local 'task' instance sees the updated values.
+      task.setCurrentProgress(finalCurrentStep);
+      task.setProgressMessage(formattedMessage);
+    }
+    logger.debug(
+        "Task {} progress: [{}/{}] {}",
+        task.getId(),
+        task.getCurrentProgress(),
+        totalSteps,
+        formattedMessage);
   }
 
   /**
@@ -190,7 +257,7 @@ public class TaskProcessorService {
 
       // Now, start actual processing with progress updates.
       // The status will be set to PROCESSING by the first call to updateTaskProgress
-      // (via TaskProgressPersistenceService) if it's currently PENDING.
+      // (via TaskProgressRegistry) if it's currently PENDING.
       // The totalSteps calculation included conceptual steps for fetching and parsing.
       // We'll explicitly update progress for these to align the counter.
       // currentStepCounter is already 0.
@@ -286,224 +353,209 @@ public class TaskProcessorService {
       var fullInteractionResult = collectInteractions(analyzedModels, referenceStructure);
       var aggregatedInteractionResult = fullInteractionResult.aggregatedResult();
 
-      updateTaskProgress(task, currentStepCounter, totalSteps, "Ranking models");
       Set<ConsensusInteraction> requiredInteractionSet =
           generateReferenceConsensusInteractions(referenceStructure, fullInteractionResult);
       Set<ConsensusInteraction> forbiddenInteractionSet =
           generateForbiddenConsensusInteractions(referenceStructure, fullInteractionResult);
-      var rankedModels =
-          generateRankedModels(
-              analyzedModels,
-              fullInteractionResult,
-              request,
-              requiredInteractionSet,
-              forbiddenInteractionSet);
-
-      updateTaskProgress(
-          task, currentStepCounter, totalSteps, "Generating dot-bracket for consensus structure");
-      var consensusDotBracket =
-          generateDotBracket(
-              firstModel,
-              determineConsensusSet(
-                  aggregatedInteractionResult.sortedInteractions,
-                  request.confidenceLevel(),
-                  ConsensusMode.CANONICAL));
-
-      updateTaskProgress(
-          task, currentStepCounter, totalSteps, "Preparing final task result object");
-      var taskResult =
-          new TaskResult(
-              rankedModels, referenceStructure, consensusDotBracket.toStringWithStrands());
-      var resultJson = objectMapper.writeValueAsString(taskResult);
-      task.setResult(resultJson);
-
-      updateTaskProgress(
-          task,
-          currentStepCounter,
-          totalSteps,
-          "Generating 2D visualization for consensus (Varna)");
-
-      // Determine consensus interactions and forbidden interactions for consensus visualization
-      Set<ConsensusInteraction> consensusInteractionsToVisualize =
-          determineConsensusSet(
-              aggregatedInteractionResult.sortedInteractions(),
-              request.confidenceLevel(),
-              ConsensusMode.ALL);
 
-      // Add consensus-specific interactions that use forbidden residues from reference structure
+      // Everything below depends only on the aggregated interactions (or on the ranking), so it is
+      // described as a stage graph: ranking, dot-bracket and the visualizations run concurrently
+      // instead of waiting for each other.
+      Task finalTask = task;
+      int finalTotalSteps = totalSteps;
       ReferenceStructureUtil.ReferenceParseResult finalReferenceStructure = referenceStructure;
-      Set<ConsensusInteraction> consensusForbiddenInteractions =
-          aggregatedInteractionResult.sortedInteractions().stream()
-              .filter(ConsensusInteraction::forbiddenInReference)
-              .collect(Collectors.toSet());
-
-      var consensusSvg =
-          generateVisualization(
-              firstModel, // Use first model as template for consensus
-              consensusInteractionsToVisualize,
-              consensusForbiddenInteractions, // Forbidden interactions for consensus
-              referenceStructure.markedResidues()); // Marked residues for consensus
-      logger.debug("Generated SVG for consensus");
-
-      // Prepare RChieData
-      RChieData rChieData =
-          prepareRChieData(
-              firstModel,
-              aggregatedInteractionResult,
-              referenceStructure,
-              request.confidenceLevel());
-      // At this point, rChieData is prepared.
-      updateTaskProgress(
-          task, currentStepCounter, totalSteps, "Preparing RChie data for consensus structure");
-      logger.info(
-          "Prepared RChieData with {} top and {} bottom interactions.",
-          rChieData.top().size(),
-          rChieData.bottom().size());
-
-      // Generate RChie visualization
-      try {
-        updateTaskProgress(
-            task, currentStepCounter, totalSteps, "Generating RChie visualization for consensus");
-        org.w3c.dom.svg.SVGDocument rChieSvgDoc = rChieClient.visualize(rChieData);
-        byte[] rChieSvgBytes = SVGHelper.export(rChieSvgDoc, Format.SVG);
-        String rChieSvgString = new String(rChieSvgBytes);
-        task.addModelSvg("rchie-consensus", rChieSvgString);
-        logger.info("Successfully generated and stored RChie visualization SVG.");
-      } catch (Exception e) {
-        logger.error("Failed to generate or store RChie visualization SVG", e);
-        // Optionally, add a message to the task or handle the error appropriately
-        task.setMessage(
-            (task.getMessage() == null ? "" : task.getMessage() + "; ")
-                + "Failed to generate RChie visualization: "
-                + e.getMessage());
-      }
-
-      // Generate model-specific SVGs. This block is estimated as (initialFileCount * 2) steps.
-      ConcurrentMap<String, String> modelSvgMap =
-          rankedModels.parallelStream()
-              .flatMap(
-                  rankedModel -> {
-                    List<Map.Entry<String, String>> svgEntries = new ArrayList<>();
-                    AnalyzedModel correspondingAnalyzedModel =
-                        analyzedModels.stream()
-                            .filter(am -> am.name().equals(rankedModel.name()))
-                            .findFirst()
-                            .orElse(null);
-
-                    if (correspondingAnalyzedModel != null) {
-                      InteractionCollectionResult modelInteractionResult =
-                          fullInteractionResult.perModelResults().get(rankedModel.name());
-
-                      if (modelInteractionResult != null) {
-                        // 1. Generate standard model visualization (Varna/VisualizationClient)
-                        try {
-                          Set<ConsensusInteraction> modelInteractionsToVisualize =
-                              determineConsensusSet(
-                                  modelInteractionResult.sortedInteractions(),
-                                  request.confidenceLevel(),
-                                  ConsensusMode.ALL);
-
-                          // Add model-specific interactions that use forbidden residues from
-                          // reference structure
-                          Set<ConsensusInteraction> forbiddenInteractions =
-                              modelInteractionResult.sortedInteractions().stream()
-                                  .filter(ConsensusInteraction::forbiddenInReference)
-                                  .collect(Collectors.toSet());
-
-                          String modelSvg =
-                              generateVisualization(
-                                  correspondingAnalyzedModel,
-                                  modelInteractionsToVisualize,
-                                  forbiddenInteractions,
-                                  finalReferenceStructure.markedResidues());
-                          logger.debug("Generated standard SVG for model: {}", rankedModel.name());
-                          svgEntries.add(Map.entry(rankedModel.name(), modelSvg));
-                        } catch (Exception e) {
-                          logger.warn(
-                              "Failed to generate standard Varna visualization for model {}: {}",
-                              rankedModel.name(),
-                              e.getMessage());
-                        }
-
-                        // 2. Generate RChie SVG for the model
-                        try {
-                          logger.debug(
-                              "Generating RChie visualization for model: {}", rankedModel.name());
-                          RChieData rChieModelData =
-                              prepareRChieData(
-                                  correspondingAnalyzedModel,
-                                  modelInteractionResult,
-                                  finalReferenceStructure,
-                                  request.confidenceLevel());
-
-                          org.w3c.dom.svg.SVGDocument rChieModelSvgDoc =
-                              rChieClient.visualize(rChieModelData);
-                          byte[] rChieModelSvgBytes =
-                              SVGHelper.export(rChieModelSvgDoc, Format.SVG);
-                          String rChieModelSvgString = new String(rChieModelSvgBytes);
-                          String rChieSvgKey = "rchie-" + rankedModel.name();
-                          svgEntries.add(Map.entry(rChieSvgKey, rChieModelSvgString));
-                          logger.debug(
-                              "Successfully generated RChie visualization SVG for model {}.",
-                              rankedModel.name());
-                        } catch (Exception e) {
-                          logger.error(
-                              "Failed to generate RChie visualization SVG for model {}",
-                              rankedModel.name(),
-                              e);
-                        }
-                      } else {
-                        logger.warn(
-                            "Could not find interaction results for model {} to generate SVGs.",
-                            rankedModel.name());
-                      }
-                    } else {
-                      logger.warn(
-                          "Could not find corresponding AnalyzedModel for RankedModel {} to"
-                              + " generate SVGs.",
-                          rankedModel.name());
-                    }
-                    return svgEntries.stream();
-                  })
-              .collect(Collectors.toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue));
-
-      // After parallel SVG generation, iterate to update progress for each allocated step
-      int actualRankedModelsCount = rankedModels.size();
-      for (int i = 0; i < actualRankedModelsCount; i++) {
-        RankedModel rankedModel = rankedModels.get(i);
-        updateTaskProgress(
-            task,
-            currentStepCounter,
-            totalSteps,
-            "Generated Varna SVG for model %d of %d: %s",
-            i + 1,
-            actualRankedModelsCount,
-            rankedModel.name());
-        updateTaskProgress(
-            task,
-            currentStepCounter,
-            totalSteps,
-            "Generated RChie SVG for model %d of %d: %s",
-            i + 1,
-            actualRankedModelsCount,
-            rankedModel.name());
-      }
-      // Consume any remaining allocated steps if fewer models were ranked than initialFileCount
-      int stepsConsumedForModelSVGs = actualRankedModelsCount * 2;
-      int stepsAllocatedForModelSVGs = initialFileCount * 2;
-      for (int i = stepsConsumedForModelSVGs; i < stepsAllocatedForModelSVGs; i++) {
-        // Increment counter without specific message, or use a generic one
-        updateTaskProgress(
-            task,
-            currentStepCounter,
-            totalSteps,
-            "Adjusting progress for model SVG generation step.");
+      Queue<String> stageWarnings = new ConcurrentLinkedQueue<>();
+      StageGraph graph =
+          new StageGraph(
+              taskId,
+              pipelineExecutor,
+              new StageListener() {
+                @Override
+                public void onStageStarted(String name) {
+                  taskEventPublisher.publishStage(taskId, new StageEvent(name, "started"));
+                }
+
+                @Override
+                public void onStageFinished(String name, boolean succeeded) {
+                  taskEventPublisher.publishStage(
+                      taskId, new StageEvent(name, succeeded ? "finished" : "failed"));
+                }
+              });
+
+      StageGraph.Stage<List<RankedModel>> rankingStage =
+          graph.stage(
+              "ranking",
+              () -> {
+                updateTaskProgress(
+                    finalTask, currentStepCounter, finalTotalSteps, "Ranking models");
+                return generateRankedModels(
+                    analyzedModels,
+                    fullInteractionResult,
+                    request,
+                    requiredInteractionSet,
+                    forbiddenInteractionSet);
+              });
+
+      StageGraph.Stage<DefaultDotBracketFromPdb> consensusDotBracketStage =
+          graph.stage(
+              "consensus-dot-bracket",
+              () -> {
+                updateTaskProgress(
+                    finalTask,
+                    currentStepCounter,
+                    finalTotalSteps,
+                    "Generating dot-bracket for consensus structure");
+                return generateDotBracket(
+                    firstModel.structure3D(),
+                    consensusSet(
+                        fullInteractionResult,
+                        aggregatedInteractionResult.sortedInteractions(),
+                        request.confidenceLevel(),
+                        ConsensusMode.CANONICAL),
+                    false);
+              });
+
+      StageGraph.Stage<TaskResult> resultStage =
+          graph.stage(
+              "task-result",
+              () -> {
+                updateTaskProgress(
+                    finalTask,
+                    currentStepCounter,
+                    finalTotalSteps,
+                    "Preparing final task result object");
+                return new TaskResult(
+                    rankingStage.result(),
+                    finalReferenceStructure,
+                    consensusDotBracketStage.result().toStringWithStrands());
+              },
+              rankingStage,
+              consensusDotBracketStage);
+
+      StageGraph.Stage<String> resultTablesStage =
+          graph.stage(
+              "result-tables",
+              () -> resultTablesService.serialize(resultStage.result()),
+              resultStage);
+
+      StageGraph.Stage<String> interactionSnapshotStage =
+          graph.stage(
+              "interaction-snapshot",
+              () ->
+                  createInteractionSnapshot(
+                      analyzedModels, request.confidenceLevel(), fullInteractionResult));
+
+      StageGraph.Stage<String> consensusSvgStage =
+          graph.stage(
+              "consensus-varna",
+              () -> {
+                updateTaskProgress(
+                    finalTask,
+                    currentStepCounter,
+                    finalTotalSteps,
+                    "Generating 2D visualization for consensus (Varna)");
+
+                // Determine consensus interactions and forbidden interactions for consensus
+                // visualization
+                Set<ConsensusInteraction> consensusInteractionsToVisualize =
+                    consensusSet(
+                        fullInteractionResult,
+                        aggregatedInteractionResult.sortedInteractions(),
+                        request.confidenceLevel(),
+                        ConsensusMode.ALL);
+
+                // Add consensus-specific interactions that use forbidden residues from reference
+                // structure
+                Set<ConsensusInteraction> consensusForbiddenInteractions =
+                    aggregatedInteractionResult.sortedInteractions().stream()
+                        .filter(ConsensusInteraction::forbiddenInReference)
+                        .collect(Collectors.toSet());
+
+                var consensusSvg =
+                    generateVisualization(
+                        firstModel, // Use first model as template for consensus
+                        consensusInteractionsToVisualize,
+                        consensusForbiddenInteractions, // Forbidden interactions for consensus
+                        finalReferenceStructure.markedResidues()); // Marked residues for consensus
+                logger.debug("Generated SVG for consensus");
+                return consensusSvg;
+              });
+
+      StageGraph.Stage<String> consensusRChieStage =
+          graph.stage(
+              "consensus-rchie",
+              () -> {
+                // Prepare RChieData
+                RChieData rChieData =
+                    prepareRChieData(
+                        firstModel,
+                        aggregatedInteractionResult,
+                        finalReferenceStructure,
+                        request.confidenceLevel());
+                updateTaskProgress(
+                    finalTask,
+                    currentStepCounter,
+                    finalTotalSteps,
+                    "Preparing RChie data for consensus structure");
+                logger.info(
+                    "Prepared RChieData with {} top and {} bottom interactions.",
+                    rChieData.top().size(),
+                    rChieData.bottom().size());
+
+                // Generate RChie visualization
+                try {
+                  updateTaskProgress(
+                      finalTask,
+                      currentStepCounter,
+                      finalTotalSteps,
+                      "Generating RChie visualization for consensus");
+                  String rChieKey = rChieRenderingService.renderAndStore(rChieData);
+                  logger.info("Successfully generated RChie visualization SVG.");
+                  return rChieKey;
+                } catch (Exception e) {
+                  logger.error("Failed to generate or store RChie visualization SVG", e);
+                  stageWarnings.add("Failed to generate RChie visualization: " + e.getMessage());
+                  return null;
+                }
+              });
+
+      // Model-specific SVGs depend only on the per-model interaction results, so they do not
+      // wait for the ranking. This block is estimated as (initialFileCount * 2) steps.
+      StageGraph.Stage<ModelSvgs> modelSvgsStage =
+          graph.stage(
+              "model-svgs",
+              () ->
+                  generateModelSvgs(
+                      analyzedModels,
+                      fullInteractionResult,
+                      finalReferenceStructure,
+                      request.confidenceLevel(),
+                      finalTask,
+                      currentStepCounter,
+                      finalTotalSteps,
+                      initialFileCount));
+
+      graph.await();
+
+      task.setResult(objectMapper.writeValueAsString(resultStage.result()));
+      task.setResultTables(resultTablesStage.result());
+      task.setInteractionSnapshot(interactionSnapshotStage.result());
+      for (String warning : stageWarnings) {
+        task.setMessage((task.getMessage() == null ? "" : task.getMessage() + "; ") + warning);
       }
 
       updateTaskProgress(task, currentStepCounter, totalSteps, "Storing all generated SVGs");
-      task.addModelSvg("consensus", consensusSvg);
-      task.getModelSvgs().putAll(modelSvgMap);
-      logger.debug("Stored consensus SVG and {} model-specific SVGs", modelSvgMap.size());
+      storeSvg(task, "consensus", consensusSvgStage.result());
+      if (consensusRChieStage.result() != null) {
+        task.addSvgArtifact("rchie-consensus", consensusRChieStage.result());
+        logger.info("Successfully stored RChie visualization SVG.");
+      }
+      var modelSvgs = modelSvgsStage.result();
+      modelSvgs.svgs().forEach((name, svg) -> storeSvg(finalTask, name, svg));
+      modelSvgs.artifactKeys().forEach(task::addSvgArtifact);
+      logger.debug(
+          "Stored consensus SVG and {} model-specific SVGs",
+          modelSvgs.svgs().size() + modelSvgs.artifactKeys().size());
 
       updateTaskProgress(
           task, currentStepCounter, totalSteps, "Task processing completed successfully");
@@ -529,237 +581,620 @@ public class TaskProcessorService {
         task.setMessage(finalMessage); // Overwrites progressMessage if needed for final display
         taskRepository.saveAndFlush(task);
       }
+    } finally {
+      // The final state is written with the entity, so the registry entry is dropped once this
+      // transaction is finished and status reads can go to the database again.
+      taskProgressRegistry.releaseAfterCompletion(taskId);
     }
     return CompletableFuture.completedFuture(null);
   }
 
+  /**
+   * Recomputes the consensus and the ranking of a completed task for another confidence level and
+   * reference structure. The interactions stored when the task completed are aggregated again, so
+   * no model is parsed or analyzed again and the task itself is left unchanged.
+   *
+   * <p>The stored dot-brackets, of models as well as of the consensus, are reused as long as the
+   * canonical consensus does not change. Otherwise they are encoded in-process, so rescoring never
+   * calls the conversion service.
+   *
+   * @param taskId The id of a completed task.
+   * @param confidenceLevel The confidence level threshold (null for fuzzy mode).
+   * @param dotBracket The reference structure in dot-bracket notation, may be null or blank.
+   * @return The result of the task for the given parameters.
+   * @throws JsonProcessingException if the stored data of the task cannot be read.
+   */
+  public TaskResult rescore(String taskId, Integer confidenceLevel, String dotBracket)
+      throws JsonProcessingException {
+    var snapshot = loadInteractionSnapshot(taskId);
+    var storedResult = loadTaskResult(taskId);
+
+    int modelCount = snapshot.models().size();
+    if (confidenceLevel != null && (confidenceLevel < 2 || confidenceLevel > modelCount)) {
+      throw new IllegalArgumentException(
+          "Confidence level must be between 2 and the number of ranked models");
+    }
+    logger.info(
+        "Rescoring {} models of task {} with confidenceLevel: {}",
+        modelCount,
+        taskId,
+        confidenceLevel == null ? "fuzzy" : confidenceLevel);
+
+    // The template model is parsed once and then served from the structure cache
+    var structure3D =
+        structureCache
+            .parseRnaModel(snapshot.structure())
+            .orElseThrow(() -> new IllegalStateException("Stored structure has no RNA model"));
+    var referenceStructure = ReferenceStructureUtil.readReferenceStructure(dotBracket, structure3D);
+
+    var fullInteractionResult = restoreInteractions(snapshot, referenceStructure);
+
+    var scores =
+        scoreModels(
+            snapshot.models().stream().map(InteractionSnapshot.ModelKeys::name).toList(),
+            fullInteractionResult,
+            confidenceLevel,
+            generateReferenceConsensusInteractions(referenceStructure, fullInteractionResult),
+            generateForbiddenConsensusInteractions(referenceStructure, fullInteractionResult));
+    // Dot-brackets depend on the confidence level, per model as well as for the consensus
+    List<RankedModel> rankedModels =
+        storedResult.rankedModels().stream()
+            .map(
+                model ->
+                    new RankedModel(
+                        model.name(),
+                        model.basePairsAndStackings(),
+                        model.canonicalBasePairs(),
+                        model.nonCanonicalBasePairs(),
+                        model.stackings(),
+                        scores.infScores().get(model.name()),
+                        scores.f1Scores().get(model.name()),
+                        scores.ranks().get(model.name()),
+                        rescoredDotBracket(
+                            structure3D,
+                            fullInteractionResult,
+                            fullInteractionResult
+                                .perModelResults()
+                                .get(model.name())
+                                .sortedInteractions(),
+                            confidenceLevel,
+                            snapshot.confidenceLevel(),
+                            model.dotBracket())))
+            .sorted(RANKED_MODEL_ORDER)
+            .toList();
+
+    String consensusDotBracket =
+        rescoredDotBracket(
+            structure3D,
+            fullInteractionResult,
+            fullInteractionResult.aggregatedResult().sortedInteractions(),
+            confidenceLevel,
+            snapshot.confidenceLevel(),
+            storedResult.dotBracket());
+
+    return new TaskResult(rankedModels, referenceStructure, consensusDotBracket);
+  }
+
+  /**
+   * Returns the dot-bracket of the canonical consensus of the interactions at a new confidence
+   * level. Canonical conflicts do not depend on the reference, so the stored dot-bracket is reused
+   * when the canonical pairs are the same as at the level of the stored result.
+   */
+  private String rescoredDotBracket(
+      PdbModel structure3D,
+      FullInteractionCollectionResult fullInteractionResult,
+      List<ConsensusInteraction> interactions,
+      Integer confidenceLevel,
+      Integer storedConfidenceLevel,
+      String storedDotBracket) {
+    var canonical =
+        consensusSet(fullInteractionResult, interactions, confidenceLevel, ConsensusMode.CANONICAL);
+    var storedCanonical =
+        consensusSet(
+            fullInteractionResult, interactions, storedConfidenceLevel, ConsensusMode.CANONICAL);
+    return storedDotBracket != null && partnersOf(canonical).equals(partnersOf(storedCanonical))
+        ? storedDotBracket
+        : generateDotBracket(structure3D, canonical, true).toStringWithStrands();
+  }
+
+  /**
+   * Scores and ranks the models of a completed task for every confidence level from 2 to the
+   * number of models, against the reference structure of the task. The consensus sets of all
+   * levels are nested, so they are determined once for the lowest level and swept by {@link
+   * ConfidenceSweep}.
+   *
+   * @param taskId The id of a completed task.
+   * @param consensusMode The type of interactions to consider.
+   * @return The scores and ranks of the models for every confidence level.
+   * @throws JsonProcessingException if the stored data of the task cannot be read.
+   */
+  public ConfidenceSweepResponse sweepConfidenceLevels(String taskId, ConsensusMode consensusMode)
+      throws JsonProcessingException {
+    var snapshot = loadInteractionSnapshot(taskId);
+    var referenceStructure = loadTaskResult(taskId).referenceStructure();
+    if (referenceStructure == null) {
+      referenceStructure =
+          new ReferenceStructureUtil.ReferenceParseResult(
+              Collections.emptyList(), Collections.emptyList());
+    }
+    var fullInteractionResult = restoreInteractions(snapshot, referenceStructure);
+
+    List<String> modelNames =
+        snapshot.models().stream().map(InteractionSnapshot.ModelKeys::name).toList();
+    int minLevel = 2;
+    int maxLevel = modelNames.size();
+    logger.info(
+        "Sweeping confidence levels {}..{} of task {} for mode {}",
+        minLevel,
+        maxLevel,
+        taskId,
+        consensusMode);
+
+    var sweep =
+        new ConfidenceSweep(
+            consensusSet(
+                fullInteractionResult,
+                fullInteractionResult.aggregatedResult().sortedInteractions(),
+                minLevel,
+                consensusMode),
+            modelNames.stream()
+                .map(
+                    modelName ->
+                        consensusSet(
+                            fullInteractionResult,
+                            fullInteractionResult
+                                .perModelResults()
+                                .get(modelName)
+                                .sortedInteractions(),
+                            minLevel,
+                            consensusMode))
+                .toList(),
+            generateReferenceConsensusInteractions(referenceStructure, fullInteractionResult),
+            generateForbiddenConsensusInteractions(referenceStructure, fullInteractionResult));
+    var scores = sweep.sweep(minLevel, maxLevel);
+
+    var levels = new ArrayList<ConfidenceSweepResponse.Level>();
+    for (int level = minLevel; level <= maxLevel; level++) {
+      var levelScores = scores[level - minLevel];
+      double[] infs =
+          Arrays.stream(levelScores).mapToDouble(InteractionScoringEngine.Scores::inf).toArray();
+      double[] f1s =
+          Arrays.stream(levelScores).mapToDouble(InteractionScoringEngine.Scores::f1).toArray();
+      levels.add(new ConfidenceSweepResponse.Level(level, infs, f1s, modelRanking.rank(infs, f1s)));
+    }
+    return new ConfidenceSweepResponse(consensusMode, modelNames, levels);
+  }
+
+  private InteractionSnapshot loadInteractionSnapshot(String taskId)
+      throws JsonProcessingException {
+    var status =
+        taskRepository.findStatusById(taskId).orElseThrow(() -> new TaskNotFoundException(taskId));
+    if (status != TaskStatus.COMPLETED) {
+      throw new IllegalStateException("Task is not completed yet");
+    }
+    var snapshotJson =
+        taskRepository
+            .findInteractionSnapshotById(taskId)
+            .orElseThrow(
+                () -> new IllegalStateException("Task has no stored interactions to rescore"));
+    return objectMapper.readValue(snapshotJson, InteractionSnapshot.class);
+  }
+
+  private TaskResult loadTaskResult(String taskId) throws JsonProcessingException {
+    var resultJson =
+        taskRepository
+            .findResultById(taskId)
+            .orElseThrow(() -> new IllegalStateException("No results available"));
+    return objectMapper.readValue(resultJson, TaskResult.class);
+  }
+
+  /** Aggregates the stored interactions of a task again, for the given reference structure. */
+  private FullInteractionCollectionResult restoreInteractions(
+      InteractionSnapshot snapshot,
+      ReferenceStructureUtil.ReferenceParseResult referenceStructure) {
+    // Residues are interned in the stored order, so the stored keys keep their meaning
+    var interner = new ResidueInterner();
+    snapshot.residues().forEach(interner::intern);
+    var modelKeys = new LinkedHashMap<String, long[]>();
+    snapshot.models().forEach(model -> modelKeys.put(model.name(), model.keys()));
+    return aggregateInteractions(interner, modelKeys, referenceStructure);
+  }
+
+  private static Set<List<PdbNamedResidueIdentifier>> partnersOf(
+      Collection<ConsensusInteraction> interactions) {
+    return interactions.stream()
+        .map(interaction -> List.of(interaction.partner1(), interaction.partner2()))
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * Stores the interactions of a task in the compact form they were counted in.
+   *
+   * @param analyzedModels The analyzed models, the first one being the template model.
+   * @param confidenceLevel The confidence level threshold (null for fuzzy mode).
+   * @param fullInteractionResult The complete interaction results (aggregated and per-model).
+   * @return The snapshot as JSON or null if it could not be created.
+   */
+  private String createInteractionSnapshot(
+      List<AnalyzedModel> analyzedModels,
+      Integer confidenceLevel,
+      FullInteractionCollectionResult fullInteractionResult) {
+    try {
+      var models =
+          analyzedModels.stream()
+              .map(
+                  model ->
+                      new InteractionSnapshot.ModelKeys(
+                          model.name(),
+                          fullInteractionResult
+                              .perModelResults()
+                              .get(model.name())
+                              .interactionKeys()))
+              .toList();
+      var snapshot =
+          new InteractionSnapshot(
+              analyzedModels.get(0).structure3D().toPdb(),
+              confidenceLevel,
+              fullInteractionResult.interner().residues(),
+              models);
+      return objectMapper.writeValueAsString(snapshot);
+    } catch (Exception e) {
+      // The task is complete without it, only rescoring is unavailable
+      logger.warn("Failed to create the interaction snapshot, the task cannot be rescored", e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores an SVG in the artifact store and records its key in the task. If the store is not
+   * writable, the SVG is kept in the task itself so the result is not lost.
+   */
+  private void storeSvg(Task task, String name, String svg) {
+    try {
+      task.addSvgArtifact(name, artifactStore.put(svg.getBytes(StandardCharsets.UTF_8)));
+    } catch (IOException e) {
+      logger.warn("Failed to store SVG {} of task {}: {}", name, task.getId(), e.getMessage());
+      task.addModelSvg(name, svg);
+    }
+  }
+
+  /**
+   * Generates the Varna and RChie visualizations of every analyzed model. This block is estimated
+   * as (initialFileCount * 2) steps. RChie drawings are stored as they are generated, so only their
+   * artifact keys are returned; the caller records everything on the task.
+   *
+   * @param analyzedModels The models to visualize.
+   * @param fullInteractionResult The complete interaction results (aggregated and per-model).
+   * @param referenceStructure The parsed reference structure.
+   * @param confidenceLevel The confidence level threshold (null for fuzzy mode).
+   * @param task The task entity for progress updates.
+   * @param currentStepCounter The atomic counter for current step.
+   * @param totalSteps The total estimated steps for the task.
+   * @param initialFileCount The number of files based on which steps were allocated.
+   * @return The Varna SVG content and the RChie artifact keys, by SVG name.
+   */
+  private ModelSvgs generateModelSvgs(
+      List<AnalyzedModel> analyzedModels,
+      FullInteractionCollectionResult fullInteractionResult,
+      ReferenceStructureUtil.ReferenceParseResult referenceStructure,
+      Integer confidenceLevel,
+      Task task,
+      AtomicInteger currentStepCounter,
+      int totalSteps,
+      int initialFileCount) {
+    // Workers only return their results: the task is not thread-safe
+    List<ModelSvgs> perModelSvgs =
+        mapOnRemoteIo(
+            analyzedModels,
+            model -> {
+              Map<String, String> svgs = new HashMap<>();
+              Map<String, String> artifactKeys = new HashMap<>();
+              InteractionCollectionResult modelInteractionResult =
+                  fullInteractionResult.perModelResults().get(model.name());
+
+              if (modelInteractionResult != null) {
+                // 1. Generate standard model visualization (Varna/VisualizationClient)
+                try {
+                  Set<ConsensusInteraction> modelInteractionsToVisualize =
+                      consensusSet(
+                          fullInteractionResult,
+                          modelInteractionResult.sortedInteractions(),
+                          confidenceLevel,
+                          ConsensusMode.ALL);
+
+                  // Add model-specific interactions that use forbidden residues from
+                  // reference structure
+                  Set<ConsensusInteraction> forbiddenInteractions =
+                      modelInteractionResult.sortedInteractions().stream()
+                          .filter(ConsensusInteraction::forbiddenInReference)
+                          .collect(Collectors.toSet());
+
+                  String modelSvg =
+                      generateVisualization(
+                          model,
+                          modelInteractionsToVisualize,
+                          forbiddenInteractions,
+                          referenceStructure.markedResidues());
+                  logger.debug("Generated standard SVG for model: {}", model.name());
+                  svgs.put(model.name(), modelSvg);
+                } catch (Exception e) {
+                  logger.warn(
+                      "Failed to generate standard Varna visualization for model {}: {}",
+                      model.name(),
+                      e.getMessage());
+                }
+
+                // 2. Generate RChie SVG for the model
+                try {
+                  logger.debug("Generating RChie visualization for model: {}", model.name());
+                  RChieData rChieModelData =
+                      prepareRChieData(
+                          model, modelInteractionResult, referenceStructure, confidenceLevel);
+
+                  artifactKeys.put(
+                      "rchie-" + model.name(),
+                      rChieRenderingService.renderAndStore(rChieModelData));
+                  logger.debug(
+                      "Successfully generated RChie visualization SVG for model {}.",
+                      model.name());
+                } catch (Exception e) {
+                  logger.error(
+                      "Failed to generate RChie visualization SVG for model {}",
+                      model.name(),
+                      e);
+                }
+              } else {
+                logger.warn(
+                    "Could not find interaction results for model {} to generate SVGs.",
+                    model.name());
+              }
+              return new ModelSvgs(svgs, artifactKeys);
+            });
+    var modelSvgs = new ModelSvgs(new HashMap<>(), new HashMap<>());
+    for (ModelSvgs svgsOfModel : perModelSvgs) {
+      modelSvgs.svgs().putAll(svgsOfModel.svgs());
+      modelSvgs.artifactKeys().putAll(svgsOfModel.artifactKeys());
+    }
+
+    // After parallel SVG generation, iterate to update progress for each allocated step
+    int modelCount = analyzedModels.size();
+    for (int i = 0; i < modelCount; i++) {
+      AnalyzedModel model = analyzedModels.get(i);
+      updateTaskProgress(
+          task,
+          currentStepCounter,
+          totalSteps,
+          "Generated Varna SVG for model %d of %d: %s",
+          i + 1,
+          modelCount,
+          model.name());
+      updateTaskProgress(
+          task,
+          currentStepCounter,
+          totalSteps,
+          "Generated RChie SVG for model %d of %d: %s",
+          i + 1,
+          modelCount,
+          model.name());
+    }
+    // Consume any remaining allocated steps if fewer models were analyzed than initialFileCount
+    int stepsConsumedForModelSVGs = modelCount * 2;
+    int stepsAllocatedForModelSVGs = initialFileCount * 2;
+    for (int i = stepsConsumedForModelSVGs; i < stepsAllocatedForModelSVGs; i++) {
+      updateTaskProgress(
+          task,
+          currentStepCounter,
+          totalSteps,
+          "Adjusting progress for model SVG generation step.");
+    }
+    return modelSvgs;
+  }
+
   /**
    * Internal record to hold the results of interaction collection for a single model or aggregated
    * across models. Holds either the aggregated results or per-model results.
+   *
+   * @param sortedInteractions The consensus interactions in the order of the tables.
+   * @param interactionKeys The distinct interactions as sorted {@link InteractionKeys}.
    */
   private record InteractionCollectionResult(
-      List<ConsensusInteraction> sortedInteractions, // List of ConsensusInteraction objects
-      HashBag<AnalyzedBasePair> canonicalPairsBag,
-      HashBag<AnalyzedBasePair> nonCanonicalPairsBag,
-      HashBag<AnalyzedBasePair> stackingsBag,
-      HashBag<AnalyzedBasePair> allInteractionsBag) {}
+      List<ConsensusInteraction> sortedInteractions, long[] interactionKeys) {}
 
   /**
    * Internal record to hold the complete results of interaction collection, including both the
-   * aggregated results and the per-model results.
+   * aggregated results and the per-model results. Consensus sets of the interaction lists held
+   * here are memoized in {@code consensusSets}, see {@link #consensusSet}.
    */
   private record FullInteractionCollectionResult(
       InteractionCollectionResult aggregatedResult,
-      Map<String, InteractionCollectionResult> perModelResults) {}
+      Map<String, InteractionCollectionResult> perModelResults,
+      ResidueInterner interner,
+      ConsensusSetMemo consensusSets) {}
+
+  private static final Comparator<ConsensusInteraction> CONSENSUS_INTERACTION_ORDER =
+      Comparator.comparing(ConsensusInteraction::category)
+          .thenComparing(ConsensusInteraction::modelCount, Comparator.reverseOrder())
+          .thenComparing(ConsensusInteraction::partner1)
+          .thenComparing(ConsensusInteraction::partner2);
+
+  private static final Comparator<RankedModel> RANKED_MODEL_ORDER =
+      Comparator.comparingInt(
+          rankedModel -> rankedModel.rank().getOrDefault(ConsensusMode.ALL, Integer.MAX_VALUE));
 
   /**
    * Collects all interactions (canonical, non-canonical, stacking) from the analyzed models,
    * calculates their frequency, determines if they are part of the reference structure, stores
    * per-model results, and returns the aggregated results along with the per-model map.
    *
+   * <p>Residues are interned per task and every interaction is encoded as a primitive key, so the
+   * counting neither hashes BioCommons objects nor keeps a bag entry per occurrence.
+   *
    * @param analyzedModels The list of models analyzed by a secondary structure tool.
    * @param referenceStructure The parsed reference structure (dot-bracket).
-   * @return A {@link FullInteractionCollectionResult} containing the aggregated results (bags and
-   *     sorted consensus list) and a map of per-model interaction results (bags only).
+   * @return A {@link FullInteractionCollectionResult} containing the aggregated results (keys and
+   *     sorted consensus list) and a map of per-model interaction results.
    */
   private FullInteractionCollectionResult collectInteractions(
       List<AnalyzedModel> analyzedModels,
       ReferenceStructureUtil.ReferenceParseResult referenceStructure) {
-    var combinedCanonicalBag = new HashBag<AnalyzedBasePair>();
-    var combinedNonCanonicalBag = new HashBag<AnalyzedBasePair>();
-    var combinedStackingBag = new HashBag<AnalyzedBasePair>();
-    var combinedAllBag = new HashBag<AnalyzedBasePair>();
+    var interner = new ResidueInterner();
 
-    // Step 1: Aggregate bags from all models
-    logger.debug("Aggregating interaction bags from {} models", analyzedModels.size());
+    // Step 1: Encode the distinct interactions of each model
+    logger.debug("Aggregating interactions from {} models", analyzedModels.size());
+    var modelKeys = new LinkedHashMap<String, long[]>();
     for (AnalyzedModel model : analyzedModels) {
-      // Temporarily collect bags without creating full per-model results yet
-      var modelBags = collectInteractionsForModel(model); // Gets bags only
-      combinedCanonicalBag.addAll(modelBags.canonicalPairsBag());
-      combinedNonCanonicalBag.addAll(modelBags.nonCanonicalPairsBag());
-      combinedStackingBag.addAll(modelBags.stackingsBag());
-      combinedAllBag.addAll(modelBags.allInteractionsBag());
+      modelKeys.put(model.name(), collectInteractionKeys(model, interner));
     }
+    return aggregateInteractions(interner, modelKeys, referenceStructure);
+  }
+
+  /**
+   * Counts the encoded interactions of all models and creates the consensus interactions, both
+   * aggregated and per model. This is the part of {@link #collectInteractions} which depends on
+   * the reference structure, so it is repeated when a task is rescored.
+   *
+   * @param interner The interner the keys were encoded with.
+   * @param modelKeys The sorted, distinct interaction keys of every model, in the model order.
+   * @param referenceStructure The parsed reference structure (dot-bracket).
+   * @return A {@link FullInteractionCollectionResult} of the models.
+   */
+  private FullInteractionCollectionResult aggregateInteractions(
+      ResidueInterner interner,
+      Map<String, long[]> modelKeys,
+      ReferenceStructureUtil.ReferenceParseResult referenceStructure) {
+    // Step 1: Count the encoded interactions across all models
+    int largestModel = modelKeys.values().stream().mapToInt(keys -> keys.length).max().orElse(0);
+    var counts = new LongIntCountMap(largestModel * 2);
+    modelKeys.values().forEach(counts::incrementAll);
+    long[] uniqueKeys = counts.sortedKeys();
     logger.debug(
-        "Total unique interactions aggregated across all models: Canonical={}, NonCanonical={},"
-            + " Stacking={}, All={}",
-        combinedCanonicalBag.uniqueSet().size(),
-        combinedNonCanonicalBag.uniqueSet().size(),
-        combinedStackingBag.uniqueSet().size(),
-        combinedAllBag.uniqueSet().size());
-
-    // Step 2: Create the map of AnalyzedBasePair to ConsensusInteraction from aggregated data
-    logger.debug("Creating map of AnalyzedBasePair to ConsensusInteraction from aggregated bags");
-    var allConsensusInteractionsMap =
-        combinedAllBag.uniqueSet().stream()
-            .filter(
-                analyzedPair ->
-                    analyzedPair.interactionType() == InteractionType.STACKING
-                        || analyzedPair.interactionType() == InteractionType.BASE_BASE)
-            .collect(
-                Collectors.toMap(
-                    analyzedPair -> analyzedPair, // Key is the AnalyzedBasePair
-                    analyzedPair -> { // Value is the ConsensusInteraction
-                      var category =
-                          analyzedPair.interactionType() == InteractionType.STACKING
-                              ? InteractionCategory.STACKING
-                              : InteractionCategory.BASE_PAIR;
-                      var lw =
-                          (category == InteractionCategory.BASE_PAIR)
-                              ? Optional.of(analyzedPair.leontisWesthof())
-                              : Optional.<LeontisWesthof>empty();
-                      boolean isCanonical = isCanonical(analyzedPair);
-                      int count =
-                          combinedAllBag.getCount(analyzedPair); // Use combined bag for count
-                      boolean presentInRef =
-                          referenceStructure.basePairs().contains(analyzedPair.basePair());
-                      boolean forbiddenInRef =
-                          referenceStructure
-                                  .markedResidues()
-                                  .contains(analyzedPair.basePair().left())
-                              || referenceStructure
-                                  .markedResidues()
-                                  .contains(analyzedPair.basePair().right());
-                      double probability =
-                          analyzedModels.isEmpty() ? 0.0 : (double) count / analyzedModels.size();
-
-                      // Ensure partner1 is always "less than" partner2 for consistent sorting
-                      var p1 = analyzedPair.basePair().left();
-                      var p2 = analyzedPair.basePair().right();
-                      if (p1.compareTo(p2) > 0) {
-                        var temp = p1;
-                        p1 = p2;
-                        p2 = temp;
-                      }
+        "Total unique interactions aggregated across all models: {} ({} distinct residues)",
+        uniqueKeys.length,
+        interner.size());
+
+    // Step 2: Encode the reference structure with the same residue indices. Residues which do not
+    // occur in any interaction cannot match one, so they are skipped.
+    long[] referencePairs =
+        referenceStructure.basePairs().stream()
+            .mapToLong(
+                basePair -> {
+                  int left = interner.indexOf(basePair.left());
+                  int right = interner.indexOf(basePair.right());
+                  return left < 0 || right < 0 ? -1L : InteractionKeys.pair(left, right);
+                })
+            .filter(pair -> pair >= 0)
+            .sorted()
+            .toArray();
+    boolean[] markedResidues = new boolean[interner.size()];
+    for (var residue : referenceStructure.markedResidues()) {
+      int index = interner.indexOf(residue);
+      if (index >= 0) {
+        markedResidues[index] = true;
+      }
+    }
 
-                      return new ConsensusInteraction(
-                          p1,
-                          p2,
-                          category,
-                          lw,
-                          isCanonical,
-                          count,
-                          probability,
-                          presentInRef,
-                          forbiddenInRef);
-                    }));
+    // Step 3: Create a ConsensusInteraction for every unique key, at the same position
+    var consensusInteractions = new ConsensusInteraction[uniqueKeys.length];
+    for (int i = 0; i < uniqueKeys.length; i++) {
+      long key = uniqueKeys[i];
+      var category =
+          InteractionKeys.isStacking(key)
+              ? InteractionCategory.STACKING
+              : InteractionCategory.BASE_PAIR;
+      var leontisWesthof = InteractionKeys.leontisWesthof(key);
+      var lw =
+          (category == InteractionCategory.BASE_PAIR)
+              ? Optional.of(leontisWesthof)
+              : Optional.<LeontisWesthof>empty();
+      int left = InteractionKeys.left(key);
+      int right = InteractionKeys.right(key);
+      var p1 = interner.residue(left);
+      var p2 = interner.residue(right);
+      boolean isCanonical = isCanonical(leontisWesthof, p1, p2);
+      int count = counts.get(key);
+      boolean presentInRef = Arrays.binarySearch(referencePairs, InteractionKeys.pairOf(key)) >= 0;
+      boolean forbiddenInRef = markedResidues[left] || markedResidues[right];
+      double probability = modelKeys.isEmpty() ? 0.0 : (double) count / modelKeys.size();
+
+      // Ensure partner1 is always "less than" partner2 for consistent sorting
+      if (p1.compareTo(p2) > 0) {
+        var temp = p1;
+        p1 = p2;
+        p2 = temp;
+      }
+
+      consensusInteractions[i] =
+          new ConsensusInteraction(
+              p1,
+              p2,
+              category,
+              lw,
+              isCanonical,
+              count,
+              probability,
+              presentInRef,
+              forbiddenInRef);
+    }
 
     logger.debug(
         "Sorting {} total ConsensusInteraction objects for the aggregated result",
-        allConsensusInteractionsMap.size());
+        consensusInteractions.length);
     var sortedAggregatedInteractions =
-        allConsensusInteractionsMap.values().stream() // Get values from the map
-            .sorted(
-                Comparator.comparing(ConsensusInteraction::category)
-                    .thenComparing(ConsensusInteraction::modelCount, Comparator.reverseOrder())
-                    .thenComparing(ConsensusInteraction::partner1)
-                    .thenComparing(ConsensusInteraction::partner2))
-            .toList();
+        Arrays.stream(consensusInteractions).sorted(CONSENSUS_INTERACTION_ORDER).toList();
 
     if (logger.isTraceEnabled()) {
       logger.trace("Sorted Aggregated Consensus Interactions:");
       sortedAggregatedInteractions.forEach(interaction -> logger.trace("  {}", interaction));
     }
 
-    // Step 3: Create the aggregated result object
+    // Step 4: Create the aggregated result object
     var aggregatedResult =
-        new InteractionCollectionResult(
-            sortedAggregatedInteractions, // Full sorted list
-            combinedCanonicalBag,
-            combinedNonCanonicalBag,
-            combinedStackingBag,
-            combinedAllBag);
-
-    // Step 4: Iterate again to create per-model results with ConsensusInteraction lists
+        new InteractionCollectionResult(sortedAggregatedInteractions, uniqueKeys);
+
+    // Step 5: Create per-model results, looking up the ConsensusInteraction of each model key
     var perModelResults = new HashMap<String, InteractionCollectionResult>();
     logger.debug("Generating per-model results with ConsensusInteraction lists");
-    for (AnalyzedModel model : analyzedModels) {
-      // Get the bags for this specific model again
-      var modelBags = collectInteractionsForModel(model);
-      var modelAnalyzedPairs = modelBags.allInteractionsBag().uniqueSet();
-
-      // Look up the corresponding ConsensusInteraction objects from the map
-      var modelConsensusInteractions =
-          modelAnalyzedPairs.stream()
-              .map(allConsensusInteractionsMap::get) // Use the main map
-              .filter(Objects::nonNull) // Filter out any potential misses (shouldn't happen)
-              .sorted( // Sort using the same comparator as the aggregated list
-                  Comparator.comparing(ConsensusInteraction::category)
-                      .thenComparing(ConsensusInteraction::modelCount, Comparator.reverseOrder())
-                      .thenComparing(ConsensusInteraction::partner1)
-                      .thenComparing(ConsensusInteraction::partner2))
-              .toList();
+    modelKeys.forEach(
+        (modelName, keys) -> {
+          var modelConsensusInteractions =
+              Arrays.stream(keys)
+                  .mapToObj(key -> consensusInteractions[Arrays.binarySearch(uniqueKeys, key)])
+                  .sorted(CONSENSUS_INTERACTION_ORDER)
+                  .toList();
+          perModelResults.put(
+              modelName, new InteractionCollectionResult(modelConsensusInteractions, keys));
 
-      // Create the per-model result
-      var modelResult =
-          new InteractionCollectionResult(
-              modelConsensusInteractions, // Model-specific sorted ConsensusInteraction list
-              modelBags.canonicalPairsBag(),
-              modelBags.nonCanonicalPairsBag(),
-              modelBags.stackingsBag(),
-              modelBags.allInteractionsBag());
-
-      perModelResults.put(model.name(), modelResult);
-
-      // Update TRACE logging for the model
-      if (logger.isTraceEnabled()) {
-        logger.trace("Sorted Consensus Interactions found in model {}:", model.name());
-        modelConsensusInteractions.forEach(interaction -> logger.trace("  {}", interaction));
-      }
-    }
+          if (logger.isTraceEnabled()) {
+            logger.trace("Sorted Consensus Interactions found in model {}:", modelName);
+            modelConsensusInteractions.forEach(interaction -> logger.trace("  {}", interaction));
+          }
+        });
 
-    // Step 5: Return the final result containing aggregated and per-model data
-    return new FullInteractionCollectionResult(aggregatedResult, perModelResults);
+    // Step 6: Return the final result containing aggregated and per-model data
+    return new FullInteractionCollectionResult(
+        aggregatedResult, perModelResults, interner, new ConsensusSetMemo());
   }
 
   /**
-   * Collects interaction bags (canonical, non-canonical, stacking, all) for a single analyzed
-   * model.
+   * Encodes the distinct base pairs and stackings of a single analyzed model.
    *
    * @param model The analyzed model.
-   * @return An {@link InteractionCollectionResult} containing only the interaction bags for the
-   *     given model. The `sortedInteractions` field will be empty.
+   * @param interner The residue interner of the task.
+   * @return The sorted, distinct {@link InteractionKeys} of the model.
    */
-  private InteractionCollectionResult collectInteractionsForModel(AnalyzedModel model) {
-    logger.trace("Collecting interaction bags for model: {}", model.name());
-
-    var canonicalPairsBag =
-        model.structure2D().basePairs().stream()
-            .filter(BasePair::isCanonical)
-            .map(model::basePairToAnalyzed)
-            .distinct()
-            .collect(Collectors.toCollection(HashBag::new));
-    logger.trace("Model {}: Found {} canonical base pairs", model.name(), canonicalPairsBag.size());
-
-    var nonCanonicalPairsBag =
-        model.structure2D().basePairs().stream()
-            .filter(basePair -> !basePair.isCanonical())
-            .map(model::basePairToAnalyzed)
-            .distinct()
-            .collect(Collectors.toCollection(HashBag::new));
-    logger.trace(
-        "Model {}: Found {} non-canonical base pairs", model.name(), nonCanonicalPairsBag.size());
-
-    var stackingsBag =
-        model.structure2D().stackings().stream()
-            .map(model::stackingToAnalyzed)
+  private long[] collectInteractionKeys(AnalyzedModel model, ResidueInterner interner) {
+    long[] keys =
+        model.basePairsAndStackings().stream()
+            .filter(
+                analyzedPair ->
+                    analyzedPair.interactionType() == InteractionType.STACKING
+                        || analyzedPair.interactionType() == InteractionType.BASE_BASE)
+            .mapToLong(analyzedPair -> InteractionKeys.encode(analyzedPair, interner))
+            .sorted()
             .distinct()
-            .collect(Collectors.toCollection(HashBag::new));
-    logger.trace("Model {}: Found {} stackings", model.name(), stackingsBag.size());
-
-    var allInteractionsBag = new HashBag<>(canonicalPairsBag);
-    allInteractionsBag.addAll(nonCanonicalPairsBag);
-    allInteractionsBag.addAll(stackingsBag);
-    logger.trace(
-        "Model {}: Total interactions (all types): {}", model.name(), allInteractionsBag.size());
-
-    // Return only the bags. The sorted list (of ConsensusInteraction) will be populated later.
-    return new InteractionCollectionResult(
-        Collections.emptyList(), // sortedInteractions is empty at this stage
-        canonicalPairsBag,
-        nonCanonicalPairsBag,
-        stackingsBag,
-        allInteractionsBag);
+            .toArray();
+    logger.trace("Model {}: Found {} distinct interactions", model.name(), keys.length);
+    return keys;
   }
 
   /**
@@ -780,45 +1215,7 @@ public class TaskProcessorService {
                 fileData -> {
                   // Inside parallel stream, avoid calling updateTaskProgress directly
                   // to prevent concurrent DB updates. Logging is fine.
-                  logger.debug("Attempting to parse file in parallel: {}", fileData.name());
-                  try {
-                    PdbModel structure3D =
-                        new PdbParser()
-                            .parse(fileData.content()).stream()
-                                .findFirst()
-                                .map(model -> model.filteredNewInstance(MoleculeType.RNA))
-                                .orElseThrow(
-                                    () ->
-                                        new RuntimeException(
-                                            "No RNA structure found in file " + fileData.name()));
-                    return new ParsedModel(fileData.name(), fileData.content(), structure3D);
-                  } catch (Exception e) {
-                    // Log and save problematic file content for debugging
-                    String errorFileName = "error-" + fileData.name();
-                    Path tempFilePath = Paths.get("/tmp", errorFileName);
-                    try {
-                      logger.warn(
-                          "Failed to parse file {}, saving content to {}. Error: {}",
-                          fileData.name(),
-                          tempFilePath,
-                          e.getMessage());
-                      Files.writeString(
-                          tempFilePath,
-                          fileData.content(),
-                          StandardOpenOption.CREATE,
-                          StandardOpenOption.WRITE,
-                          StandardOpenOption.TRUNCATE_EXISTING);
-                    } catch (IOException ioEx) {
-                      logger.error(
-                          "Failed to save content of {} to {}",
-                          fileData.name(),
-                          tempFilePath,
-                          ioEx);
-                    }
-                    // Propagate the original parsing exception
-                    throw new RuntimeException(
-                        "Failed to parse file " + fileData.name() + ": " + e.getMessage(), e);
-                  }
+                  return parsePdbFile(fileData);
                 })
             .toList();
 
@@ -836,6 +1233,47 @@ public class TaskProcessorService {
     return result;
   }
 
+  /**
+   * Parses a single PDB file into a 3D structure limited to RNA.
+   *
+   * @param fileData The file to parse.
+   * @return The parsed model.
+   * @throws RuntimeException if the file cannot be parsed or contains no RNA.
+   */
+  private ParsedModel parsePdbFile(FileData fileData) {
+    logger.debug("Attempting to parse file: {}", fileData.name());
+    try {
+      PdbModel structure3D =
+          structureCache
+              .parseRnaModel(fileData.content())
+              .orElseThrow(
+                  () -> new RuntimeException("No RNA structure found in file " + fileData.name()));
+      return new ParsedModel(fileData.name(), fileData.content(), structure3D);
+    } catch (Exception e) {
+      // Log and save problematic file content for debugging
+      String errorFileName = "error-" + fileData.name();
+      Path tempFilePath = Paths.get("/tmp", errorFileName);
+      try {
+        logger.warn(
+            "Failed to parse file {}, saving content to {}. Error: {}",
+            fileData.name(),
+            tempFilePath,
+            e.getMessage());
+        Files.writeString(
+            tempFilePath,
+            fileData.content(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+      } catch (IOException ioEx) {
+        logger.error("Failed to save content of {} to {}", fileData.name(), tempFilePath, ioEx);
+      }
+      // Propagate the original parsing exception
+      throw new RuntimeException(
+          "Failed to parse file " + fileData.name() + ": " + e.getMessage(), e);
+    }
+  }
+
   /**
    * Checks for consistency in nucleotide composition and identifiers across models. Attempts to
    * unify models if sequences match but identifiers differ.
@@ -1021,7 +1459,7 @@ public class TaskProcessorService {
         initialFileCountForProgress);
     var validModels = new ArrayList<ParsedModel>(); // Use mutable list
 
-    try (var rnalyzerClient = new RnalyzerClient()) {
+    try (var rnalyzerClient = new RnalyzerClient(rnalyzerRestTemplate)) {
       rnalyzerClient.initializeSession();
 
       int modelIndex = 0;
@@ -1035,41 +1473,11 @@ public class TaskProcessorService {
             modelIndex,
             models.size(), // Current batch size
             model.name());
-        MolProbityResponse response = null;
-        boolean isValid; // Assume valid unless proven otherwise or analysis fails
-        try {
-          response = rnalyzerClient.analyzePdbContent(model.content(), model.name());
-
-          // Store the MolProbity response JSON in the task
-          try {
-            String responseJson = objectMapper.writeValueAsString(response);
-            task.addMolProbityResponse(model.name(), responseJson);
-          } catch (JsonProcessingException e) {
-            logger.error("Failed to serialize MolProbityResponse for model {}", model.name(), e);
-            task.addMolProbityResponse(model.name(), "{\"error\": \"Serialization failed\"}");
-          }
-
-          // Check validity using the obtained response
-          isValid = isModelValid(model.name(), response.structure(), filter, task);
-
-        } catch (Exception e) {
-          logger.warn(
-              "MolProbity analysis failed for model {}: {}. Model will be included by default.",
-              model.name(),
-              e.getMessage());
-          // Store an error indication if analysis failed
-          if (response == null) { // Only store error if we didn't get a response to serialize
-            task.addMolProbityResponse(
-                model.name(),
-                String.format("{\"error\": \"MolProbity analysis failed: %s\"}", e.getMessage()));
-          }
-          isValid = true; // Include model if analysis fails
-        }
-
-        if (isValid) {
+        MolProbityVerdict verdict = checkWithMolProbity(rnalyzerClient, model, filter);
+        applyMolProbityVerdict(task, model.name(), verdict);
+        if (verdict.valid()) {
           validModels.add(model);
         }
-        // Removal reason is added within isModelValid if !isValid
       }
 
       logger.info(
@@ -1133,34 +1541,18 @@ public class TaskProcessorService {
       int totalSteps,
       int initialFileCountForProgress) {
     logger.info(
-        "Analyzing secondary structures for {} models using {} (in parallel, allocated steps: {})",
+        "Analyzing secondary structures for {} models using {} (on the remote I/O executor,"
+            + " allocated steps: {})",
         models.size(),
         analyzer.name(),
         initialFileCountForProgress);
     List<AnalyzedModel> result =
-        models.parallelStream()
-            .map(
-                model -> {
-                  logger.debug("Attempting to analyze 2D for model in parallel: {}", model.name());
-                  try {
-                    var jsonResult = analysisClient.analyze(model.name, model.content, analyzer);
-                    var structure2D = objectMapper.readValue(jsonResult, BaseInteractions.class);
-                    logger.debug("Successfully analyzed model: {}", model.name());
-                    return new AnalyzedModel(model.name, model.structure3D, structure2D);
-                  } catch (JsonProcessingException e) {
-                    logger.error(
-                        "Failed to parse analysis result for file: {}. Error: {}",
-                        model.name(),
-                        e.getMessage());
-                    throw new RuntimeException(
-                        "Failed to parse analysis result for file: " + model.name(), e);
-                  } catch (Exception e) {
-                    logger.error(
-                        "Analysis failed for model: {}. Error: {}", model.name(), e.getMessage());
-                    throw new RuntimeException("Analysis failed for model: " + model.name(), e);
-                  }
-                })
-            .toList();
+        mapOnRemoteIo(
+            models,
+            model -> {
+              logger.debug("Attempting to analyze 2D for model in parallel: {}", model.name());
+              return analyzeModel(model, analyzer);
+            });
 
     // After parallel processing, update progress for each model that was input to this stage.
     for (int i = 0; i < models.size(); i++) {
@@ -1186,6 +1578,356 @@ public class TaskProcessorService {
     return result;
   }
 
+  /**
+   * Analyzes the secondary structure (2D) of a single model.
+   *
+   * @param model The model (3D structure) to analyze.
+   * @param analyzer The secondary structure analysis tool to use.
+   * @return The model with both 3D and 2D information.
+   * @throws RuntimeException if the analysis fails or its result cannot be parsed.
+   */
+  private AnalyzedModel analyzeModel(ParsedModel model, pl.poznan.put.Analyzer analyzer) {
+    try {
+      var jsonResult = analysisCacheService.analyze(model.name, model.content, analyzer);
+      var structure2D = objectMapper.readValue(jsonResult, BaseInteractions.class);
+      logger.debug("Successfully analyzed model: {}", model.name());
+      return new AnalyzedModel(model.name, model.structure3D, structure2D);
+    } catch (JsonProcessingException e) {
+      analysisCacheService.evict(model.content, analyzer);
+      logger.error(
+          "Failed to parse analysis result for file: {}. Error: {}", model.name(), e.getMessage());
+      throw new RuntimeException("Failed to parse analysis result for file: " + model.name(), e);
+    } catch (Exception e) {
+      logger.error("Analysis failed for model: {}. Error: {}", model.name(), e.getMessage());
+      throw new RuntimeException("Analysis failed for model: " + model.name(), e);
+    }
+  }
+
+  /**
+   * Runs MolProbity for a single model. The task is not modified, the returned verdict has to be
+   * applied with {@link #applyMolProbityVerdict(Task, String, MolProbityVerdict)}.
+   *
+   * @param rnalyzerClient A client with an initialized session.
+   * @param model The model to check.
+   * @param filter The MolProbity filter level.
+   * @return The verdict; models for which the analysis failed are included by default.
+   */
+  private MolProbityVerdict checkWithMolProbity(
+      RnalyzerClient rnalyzerClient, ParsedModel model, MolProbityFilter filter) {
+    MolProbityResponse response = null;
+    String responseJson = null;
+    try {
+      response = rnalyzerClient.analyzePdbContent(model.content(), model.name());
+
+      try {
+        responseJson = objectMapper.writeValueAsString(response);
+      } catch (JsonProcessingException e) {
+        logger.error("Failed to serialize MolProbityResponse for model {}", model.name(), e);
+        responseJson = "{\"error\": \"Serialization failed\"}";
+      }
+
+      // Check validity using the obtained response
+      List<String> removalReasons = findRemovalReasons(response.structure(), filter);
+      return new MolProbityVerdict(responseJson, removalReasons.isEmpty(), removalReasons);
+    } catch (Exception e) {
+      logger.warn(
+          "MolProbity analysis failed for model {}: {}. Model will be included by default.",
+          model.name(),
+          e.getMessage());
+      // Store an error indication if analysis failed
+      if (response == null) { // Only store error if we didn't get a response to serialize
+        responseJson =
+            String.format("{\"error\": \"MolProbity analysis failed: %s\"}", e.getMessage());
+      }
+      return new MolProbityVerdict(responseJson, true, Collections.emptyList());
+    }
+  }
+
+  private void applyMolProbityVerdict(Task task, String modelName, MolProbityVerdict verdict) {
+    synchronized (task) {
+      if (verdict.responseJson() != null) {
+        task.addMolProbityResponse(modelName, verdict.responseJson());
+      }
+      for (String reason : verdict.removalReasons()) {
+        addRemovalReason(modelName, task, reason);
+      }
+    }
+  }
+
+  /**
+   * Streams every file through parsing, MolProbity and 2D analysis without waiting for the other
+   * files at each stage, with at most {@code streamingWindow} models in flight.
+   *
+   * <p>Unification is the only step which needs all models, so each model is compared with the
+   * first parsed one using its residue identifiers as a fingerprint. Matching models continue
+   * immediately; the speculative results are accepted if all fingerprints turn out to be equal.
+   * Otherwise the models are unified as in the batch mode and the unified ones are streamed
+   * through MolProbity and 2D analysis again.
+   *
+   * @param request The compute request containing files and parameters.
+   * @param task The task entity to update with progress and results.
+   * @param currentStepCounter The atomic counter for current step.
+   * @param totalSteps The total estimated steps for the task.
+   * @param initialFileCountForProgress The number of files based on which parent allocated steps.
+   * @return A list of fully analyzed models, in the order of input files.
+   */
+  private List<AnalyzedModel> streamParseAndAnalyzeFiles(
+      ComputeRequest request,
+      Task task,
+      AtomicInteger currentStepCounter,
+      int totalSteps,
+      int initialFileCountForProgress) {
+    List<FileData> files = request.files();
+    MolProbityFilter filter = request.molProbityFilter();
+    logger.info(
+        "Streaming {} files through parsing, MolProbity and 2D analysis (window: {})",
+        files.size(),
+        streamingWindow);
+
+    RnalyzerClient rnalyzerClient = null;
+    if (filter != MolProbityFilter.ALL) {
+      rnalyzerClient = new RnalyzerClient(rnalyzerRestTemplate);
+      try {
+        rnalyzerClient.initializeSession();
+      } catch (Exception e) {
+        logger.warn(
+            "MolProbity filtering failed due to an error initializing or using the RNAlyzer"
+                + " service: {}. Proceeding without MolProbity filtering.",
+            e.getMessage());
+        rnalyzerClient.close();
+        rnalyzerClient = null;
+        for (int i = 0; i < initialFileCountForProgress; i++) {
+          String modelName = (i < files.size()) ? files.get(i).name() : "N/A";
+          updateTaskProgress(
+              task,
+              currentStepCounter,
+              totalSteps,
+              "Skipping MolProbity due to service error for model (estimate %d of %d): %s",
+              i + 1,
+              initialFileCountForProgress,
+              modelName);
+        }
+      }
+    }
+
+    StreamingContext context =
+        new StreamingContext(
+            task,
+            currentStepCounter,
+            totalSteps,
+            files.size(),
+            rnalyzerClient,
+            filter,
+            request.analyzer(),
+            new Semaphore(streamingWindow));
+
+    try {
+      // 1. Parse every file and speculatively process models matching the first fingerprint
+      AtomicReference<List<PdbNamedResidueIdentifier>> referenceFingerprint =
+          new AtomicReference<>();
+      AtomicBoolean speculate = new AtomicBoolean(true);
+      AtomicInteger parsedCount = new AtomicInteger();
+      List<CompletableFuture<StreamedModel>> streamed = new ArrayList<>();
+      for (FileData fileData : files) {
+        if (streamed.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+          break; // A file failed to parse, the task will fail anyway
+        }
+        context.acquireWindow();
+        CompletableFuture<StreamedModel> future =
+            CompletableFuture.supplyAsync(
+                    () -> {
+                      ParsedModel model = parsePdbFile(fileData);
+                      updateTaskProgress(
+                          task,
+                          currentStepCounter,
+                          totalSteps,
+                          "Parsed PDB file %d of %d: %s",
+                          parsedCount.incrementAndGet(),
+                          files.size(),
+                          model.name());
+                      return model;
+                    },
+                    pipelineExecutor)
+                .thenApplyAsync(
+                    model -> {
+                      List<PdbNamedResidueIdentifier> fingerprint =
+                          model.structure3D().namedResidueIdentifiers();
+                      referenceFingerprint.compareAndSet(null, fingerprint);
+                      if (!fingerprint.equals(referenceFingerprint.get())) {
+                        // Unification will be needed, so further speculative work would be wasted
+                        speculate.set(false);
+                      }
+                      if (!speculate.get()) {
+                        return new StreamedModel(model, fingerprint, null, null);
+                      }
+                      try {
+                        return new StreamedModel(
+                            model, fingerprint, processModel(model, context), null);
+                      } catch (RuntimeException e) {
+                        // Only relevant if the speculative result is accepted
+                        return new StreamedModel(model, fingerprint, null, e);
+                      }
+                    },
+                    remoteIoExecutor);
+        future.whenComplete((ignored, throwable) -> context.releaseWindow());
+        streamed.add(future);
+      }
+      List<StreamedModel> streamedModels = joinAll(streamed);
+
+      // 2. Check consistency and unify models if needed
+      updateTaskProgress(task, currentStepCounter, totalSteps, "Unifying model structures");
+      boolean consistent =
+          streamedModels.stream().map(StreamedModel::fingerprint).distinct().count() <= 1;
+      List<ProcessedModel> processedModels;
+      if (consistent) {
+        logger.info("All models have consistent nucleotide composition and identifiers.");
+        processedModels = new ArrayList<>();
+        for (StreamedModel streamedModel : streamedModels) {
+          if (streamedModel.failure() != null) {
+            throw streamedModel.failure();
+          }
+          processedModels.add(streamedModel.processed());
+        }
+      } else {
+        logger.info("Discarding speculative results, models need to be unified first.");
+        List<ParsedModel> unifiedModels =
+            unifyModelsIfNeeded(streamedModels.stream().map(StreamedModel::parsed).toList());
+        Map<String, ProcessedModel> processed = processAll(unifiedModels, context);
+        processedModels =
+            unifiedModels.stream().map(model -> processed.get(model.name())).toList();
+      }
+
+      // 3. Apply MolProbity verdicts in input order and collect the analyzed models
+      List<AnalyzedModel> analyzedModels = new ArrayList<>();
+      for (ProcessedModel processedModel : processedModels) {
+        if (processedModel.verdict() != null) {
+          applyMolProbityVerdict(task, processedModel.model().name(), processedModel.verdict());
+        }
+        if (processedModel.analyzed() != null) {
+          analyzedModels.add(processedModel.analyzed());
+        }
+      }
+
+      if (rnalyzerClient != null) {
+        logger.info(
+            "MolProbity filtering completed. {} models passed out of {}.",
+            analyzedModels.size(),
+            processedModels.size());
+        for (int i = context.molProbityReported().size(); i < initialFileCountForProgress; i++) {
+          updateTaskProgress(
+              task,
+              currentStepCounter,
+              totalSteps,
+              "Adjusting progress for MolProbity step (unprocessed allocation %d of %d)",
+              i + 1,
+              initialFileCountForProgress);
+        }
+      }
+      for (int i = context.analysisReported().size(); i < initialFileCountForProgress; i++) {
+        updateTaskProgress(
+            task,
+            currentStepCounter,
+            totalSteps,
+            "Adjusting progress for 2D analysis step (unprocessed allocation %d of %d)",
+            i + 1,
+            initialFileCountForProgress);
+      }
+
+      logger.info(
+          "Finished streaming parsing and analysis. Resulting in {} analyzed models.",
+          analyzedModels.size());
+      return analyzedModels;
+    } finally {
+      if (rnalyzerClient != null) {
+        rnalyzerClient.close();
+      }
+    }
+  }
+
+  /**
+   * Runs MolProbity (if enabled) and 2D analysis for a single model, reporting each stage at most
+   * once per model name.
+   */
+  private ProcessedModel processModel(ParsedModel model, StreamingContext context) {
+    MolProbityVerdict verdict = null;
+    if (context.rnalyzerClient() != null) {
+      // All models share one RNAlyzer session, which is not known to handle concurrent requests,
+      // so MolProbity runs one model at a time as in the staged path; 2D analysis stays concurrent
+      synchronized (context.rnalyzerClient()) {
+        verdict = checkWithMolProbity(context.rnalyzerClient(), model, context.filter());
+      }
+      if (context.molProbityReported().add(model.name())) {
+        updateTaskProgress(
+            context.task(),
+            context.currentStepCounter(),
+            context.totalSteps(),
+            "Applied MolProbity filter to model %d of %d: %s",
+            context.molProbityReported().size(),
+            context.modelCount(),
+            model.name());
+      }
+      if (!verdict.valid()) {
+        return new ProcessedModel(model, verdict, null);
+      }
+    }
+
+    AnalyzedModel analyzed = analyzeModel(model, context.analyzer());
+    if (context.analysisReported().add(model.name())) {
+      updateTaskProgress(
+          context.task(),
+          context.currentStepCounter(),
+          context.totalSteps(),
+          "Analyzed 2D structure for model %d of %d: %s",
+          context.analysisReported().size(),
+          context.modelCount(),
+          model.name());
+    }
+    return new ProcessedModel(model, verdict, analyzed);
+  }
+
+  /**
+   * Streams the given models through {@link #processModel(ParsedModel, StreamingContext)}.
+   *
+   * @return The processed models keyed by model name.
+   */
+  private Map<String, ProcessedModel> processAll(
+      List<ParsedModel> models, StreamingContext context) {
+    List<CompletableFuture<ProcessedModel>> futures = new ArrayList<>();
+    for (ParsedModel model : models) {
+      context.acquireWindow();
+      CompletableFuture<ProcessedModel> future =
+          CompletableFuture.supplyAsync(() -> processModel(model, context), remoteIoExecutor);
+      future.whenComplete((ignored, throwable) -> context.releaseWindow());
+      futures.add(future);
+    }
+    return joinAll(futures).stream()
+        .collect(Collectors.toMap(processed -> processed.model().name(), processed -> processed));
+  }
+
+  /**
+   * Applies a blocking, remote-calling function to every item on the remote I/O executor.
+   *
+   * @return The results in the order of items.
+   */
+  private <T, R> List<R> mapOnRemoteIo(List<T> items, Function<T, R> mapper) {
+    List<CompletableFuture<R>> futures =
+        items.stream()
+            .map(item -> CompletableFuture.supplyAsync(() -> mapper.apply(item), remoteIoExecutor))
+            .toList();
+    return joinAll(futures);
+  }
+
+  private static <T> List<T> joinAll(List<CompletableFuture<T>> futures) {
+    try {
+      return futures.stream().map(CompletableFuture::join).toList();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
+
   /**
    * Orchestrates the parsing, validation, filtering, and analysis of input files.
    *
@@ -1202,6 +1944,10 @@ public class TaskProcessorService {
       AtomicInteger currentStepCounter,
       int totalSteps,
       int initialFileCountForProgress) {
+    if (streamingEnabled) {
+      return streamParseAndAnalyzeFiles(
+          request, task, currentStepCounter, totalSteps, initialFileCountForProgress);
+    }
 
     // 1. Parse PDB files into 3D structures
     List<ParsedModel> parsedModels =
@@ -1238,9 +1984,15 @@ public class TaskProcessorService {
     return analyzedModels;
   }
 
+  /**
+   * @param structure3D The model whose residues make up the sequence and strands.
+   * @param canonicalInteractions The canonical base pairs to encode.
+   * @param local Whether to encode in-process even if the conversion service is configured.
+   * @return The dot-bracket of the model.
+   */
   private DefaultDotBracketFromPdb generateDotBracket(
-      AnalyzedModel model, Set<ConsensusInteraction> canonicalInteractions) {
-    var residues = model.residueIdentifiers();
+      PdbModel structure3D, Set<ConsensusInteraction> canonicalInteractions, boolean local) {
+    var residues = structure3D.namedResidueIdentifiers();
     var canonicalPairs =
         canonicalInteractions.stream()
             .map(
@@ -1254,11 +2006,9 @@ public class TaskProcessorService {
         residues.size(),
         canonicalPairs.size());
     canonicalPairs.forEach(pair -> logger.trace("Base pair: {}", pair));
-    var bpseq = BpSeq.fromBasePairs(residues, canonicalPairs);
-    var converted = conversionClient.convertBpseqToDotBracket(bpseq.toString());
-    var sequence = converted.split("\n")[0];
-    var structure = converted.split("\n")[1];
-    return ImmutableDefaultDotBracketFromPdb.of(sequence, structure, model.structure3D());
+    return local
+        ? dotBracketService.convertLocally(structure3D, canonicalPairs)
+        : dotBracketService.convert(structure3D, canonicalPairs);
   }
 
   /**
@@ -1279,120 +2029,56 @@ public class TaskProcessorService {
         interactions.size(),
         mode,
         confidenceLevel == null ? "fuzzy" : confidenceLevel);
-    var resolvedInteractions = new HashSet<>(interactions); // Work on a mutable copy
-
-    // Only resolve conflicts for base-base interactions if mode is not STACKING
-    if (mode != ConsensusMode.STACKING) {
-      logger.debug("Resolving base-base conflicts");
-
-      // Define the comparator
-      Comparator<ConsensusInteraction> conflictComparator =
-          Comparator.comparing(ConsensusInteraction::modelCount) // Threshold: Higher count wins
-              .thenComparing(ConsensusInteraction::partner1) // Tie-breaker 1
-              .thenComparing(ConsensusInteraction::partner2); // Tie-breaker 2
-
-      for (var leontisWesthof : LeontisWesthof.values()) {
-        while (true) {
-          MultiValuedMap<PdbNamedResidueIdentifier, ConsensusInteraction> map =
-              new ArrayListValuedHashMap<>();
-          resolvedInteractions.stream() // Operate on the mutable set
-              .filter(
-                  candidate ->
-                      candidate.category() == ConsensusInteraction.InteractionCategory.BASE_PAIR)
-              .filter(
-                  candidate ->
-                      candidate.leontisWesthof().isPresent()
-                          && candidate.leontisWesthof().get() == leontisWesthof)
-              .forEach(
-                  candidate -> {
-                    map.put(candidate.partner1(), candidate);
-                    map.put(candidate.partner2(), candidate);
-                  });
-
-          var conflicting =
-              map.keySet().stream()
-                  .filter(
-                      key -> map.get(key).size() > 1) // Find residues involved in >1 interaction
-                  .flatMap(
-                      key -> map.get(key).stream()) // Get all interactions involving these residues
-                  .distinct() // Unique interactions
-                  .sorted(conflictComparator) // Sort by count/probability (lowest first)
-                  .toList();
-
-          if (conflicting.isEmpty()) {
-            break; // No more conflicts for this LeontisWesthof type
-          }
-
-          // Remove the interaction with the lowest count/probability involved in the conflict
-          ConsensusInteraction interactionToRemove = conflicting.get(0);
-          logger.trace(
-              "Conflict detected for LW {}. Removing lowest priority interaction: {}",
-              leontisWesthof,
-              interactionToRemove);
-          resolvedInteractions.remove(interactionToRemove);
-          // Loop will recalculate conflicts in the next iteration with the updated set
-        }
-      }
-    }
+    var resolvedInteractions = InteractionConflicts.resolve(interactions, mode);
 
     logger.debug(
         "Number of interactions after conflict resolution: {}", resolvedInteractions.size());
     return resolvedInteractions; // Return the set of non-conflicting interactions
   }
 
-  private boolean isModelValid(
-      String modelName,
-      MolProbityResponse.Structure structure,
-      MolProbityFilter filter,
-      Task task) {
+  /**
+   * Checks a MolProbity result against the filter.
+   *
+   * @return The reasons to remove the model, empty if it passes the filter.
+   */
+  private List<String> findRemovalReasons(
+      MolProbityResponse.Structure structure, MolProbityFilter filter) {
+    List<String> reasons = new ArrayList<>();
 
     switch (filter) {
       case ALL:
-        return true; // No filtering
+        return reasons; // No filtering
 
       case CLASHSCORE:
         if (!"good".equalsIgnoreCase(structure.rankCategory())) {
-          addRemovalReason(
-              modelName,
-              task,
+          reasons.add(
               String.format(
                   "Clashscore rank category is '%s' (required: 'good')", structure.rankCategory()));
-          return false;
         }
-        return true; // Only clashscore needs to be good
+        return reasons; // Only clashscore needs to be good
 
       case CLASHSCORE_BONDS_ANGLES:
-        boolean isValid = true;
         if (!"good".equalsIgnoreCase(structure.rankCategory())) {
-          addRemovalReason(
-              modelName,
-              task,
+          reasons.add(
               String.format(
                   "Clashscore rank category is '%s' (required: 'good')", structure.rankCategory()));
-          isValid = false;
         }
         if (!"good".equalsIgnoreCase(structure.badBondsCategory())) {
-          addRemovalReason(
-              modelName,
-              task,
+          reasons.add(
               String.format(
                   "Bad bonds category is '%s' (required: 'good')", structure.badBondsCategory()));
-          isValid = false;
         }
         if (!"good".equalsIgnoreCase(structure.badAnglesCategory())) {
-          addRemovalReason(
-              modelName,
-              task,
+          reasons.add(
               String.format(
                   "Bad angles category is '%s' (required: 'good')", structure.badAnglesCategory()));
-          isValid = false;
         }
-        return isValid;
+        return reasons;
 
       default:
-        // Should not happen, but default to true (no filtering) if enum changes unexpectedly
+        // Should not happen, but default to no filtering if enum changes unexpectedly
         logger.warn("Unknown MolProbityFilter value: {}. Applying no filter.", filter);
-        return true;
+        return reasons;
     }
   }
 
@@ -1474,6 +2160,30 @@ public class TaskProcessorService {
     return consensusSet;
   }
 
+  /**
+   * Returns the consensus set of one of the interaction lists of a task, determining it only on
+   * the first request for the list, confidence level and mode.
+   *
+   * @param fullInteractionResult The interaction results the list belongs to.
+   * @param interactions The aggregated or per-model list of consensus interactions.
+   * @param confidenceLevel The confidence threshold (null for fuzzy mode).
+   * @param consensusMode The type of interactions to consider (ALL, CANONICAL, etc.).
+   * @return An immutable set of ConsensusInteraction objects representing the final consensus.
+   */
+  private Set<ConsensusInteraction> consensusSet(
+      FullInteractionCollectionResult fullInteractionResult,
+      List<ConsensusInteraction> interactions,
+      Integer confidenceLevel,
+      ConsensusMode consensusMode) {
+    return fullInteractionResult
+        .consensusSets()
+        .computeIfAbsent(
+            interactions,
+            confidenceLevel,
+            consensusMode,
+            () -> determineConsensusSet(interactions, confidenceLevel, consensusMode));
+  }
+
   /**
    * Generates ranked models based on the comparison against a determined consensus set. Handles
    * both threshold and fuzzy modes.
@@ -1494,125 +2204,186 @@ public class TaskProcessorService {
     logger.info("Starting generation of ranked models for all consensus modes");
     Integer confidenceLevel = request.confidenceLevel();
 
+    // 1. Generate dot-bracket once per model (based on its canonical pairs). This is independent
+    // of the consensus mode used for scoring, so it runs while the models are scored: on the remote
+    // I/O executor when it calls the conversion service, on the scoring pool when it is in-process.
+    Executor dotBracketExecutor = dotBracketService.isRemote() ? remoteIoExecutor : scoringPool;
+    List<CompletableFuture<DefaultDotBracketFromPdb>> dotBracketFutures =
+        analyzedModels.stream()
+            .map(
+                model ->
+                    CompletableFuture.supplyAsync(
+                        () ->
+                            generateDotBracket(
+                                model.structure3D(),
+                                consensusSet(
+                                    fullInteractionResult,
+                                    fullInteractionResult
+                                        .perModelResults()
+                                        .get(model.name())
+                                        .sortedInteractions(),
+                                    confidenceLevel,
+                                    ConsensusMode.CANONICAL),
+                                false),
+                        dotBracketExecutor))
+            .toList();
+
+    // 2. Score and rank the models in every consensus mode
+    ModelScores scores =
+        scoreModels(
+            analyzedModels.stream().map(AnalyzedModel::name).toList(),
+            fullInteractionResult,
+            confidenceLevel,
+            requiredInteractionSet,
+            forbiddenInteractionSet);
+    List<DefaultDotBracketFromPdb> dotBrackets = joinAll(dotBracketFutures);
+
+    // 3. Create RankedModel records
+    List<RankedModel> rankedModelsResult = new ArrayList<>();
+    for (int i = 0; i < analyzedModels.size(); i++) {
+      AnalyzedModel model = analyzedModels.get(i);
+      rankedModelsResult.add(
+          new RankedModel(
+              model.name(),
+              model.basePairsAndStackings(),
+              model.canonicalBasePairs(),
+              model.nonCanonicalBasePairs(),
+              model.stackings(),
+              scores.infScores().get(model.name()),
+              scores.f1Scores().get(model.name()),
+              scores.ranks().get(model.name()),
+              dotBrackets.get(i).toStringWithStrands()));
+    }
+
+    // 4. Sort the final list based on the rank of the originally requested consensusMode
+    rankedModelsResult.sort(RANKED_MODEL_ORDER);
+
+    logger.info(
+        "Finished generating ranked models, sorted by requested mode: {}", ConsensusMode.ALL);
+    return rankedModelsResult;
+  }
+
+  /**
+   * Scores every model against the consensus of all models in each consensus mode and ranks the
+   * models by the scores.
+   *
+   * @param modelNames The names of the models to score, in the model order.
+   * @param fullInteractionResult The complete interaction results (aggregated and per-model).
+   * @param confidenceLevel The confidence level threshold (null for fuzzy mode).
+   * @param requiredInteractionSet Interactions required by the reference structure.
+   * @param forbiddenInteractionSet Interactions forbidden by the reference structure.
+   * @return The scores and ranks of the models in every consensus mode.
+   */
+  private ModelScores scoreModels(
+      List<String> modelNames,
+      FullInteractionCollectionResult fullInteractionResult,
+      Integer confidenceLevel,
+      Set<ConsensusInteraction> requiredInteractionSet,
+      Set<ConsensusInteraction> forbiddenInteractionSet) {
     // Temporary storage for per-model, per-mode scores and ranks
     Map<String, Map<ConsensusMode, Double>> infScoresPerModel = new HashMap<>();
     Map<String, Map<ConsensusMode, Double>> f1ScoresPerModel = new HashMap<>();
     Map<String, Map<ConsensusMode, Integer>> ranksPerModel = new HashMap<>();
-    Map<String, DefaultDotBracketFromPdb> dotBracketsPerModel = new HashMap<>();
 
-    // Initialize maps for each model
-    for (AnalyzedModel model : analyzedModels) {
-      infScoresPerModel.put(model.name(), new EnumMap<>(ConsensusMode.class));
-      f1ScoresPerModel.put(model.name(), new EnumMap<>(ConsensusMode.class));
-      ranksPerModel.put(model.name(), new EnumMap<>(ConsensusMode.class));
-
-      // Generate dot-bracket once per model (based on its canonical pairs)
-      // This is independent of the consensus mode used for scoring.
-      List<ConsensusInteraction> modelCanonicalConsensusInteractions =
-          fullInteractionResult.perModelResults().get(model.name()).sortedInteractions();
-      DefaultDotBracketFromPdb dotBracket =
-          generateDotBracket(
-              model,
-              determineConsensusSet(
-                  modelCanonicalConsensusInteractions, confidenceLevel, ConsensusMode.CANONICAL));
-      dotBracketsPerModel.put(model.name(), dotBracket);
+    // 1. Index every interaction of the task once; consensus sets become bitsets over this index
+    var scoringEngine =
+        new InteractionScoringEngine(
+            fullInteractionResult.aggregatedResult().sortedInteractions(),
+            requiredInteractionSet,
+            forbiddenInteractionSet,
+            confidenceLevel == null);
+    ConsensusMode[] modes = ConsensusMode.values();
+    int modelCount = modelNames.size();
+
+    // 2. Every (model, mode) cell is independent of the others, so the cells are scored in the
+    // fork-join pool into arrays indexed by cell and merged below in model order
+    BitSet[] targetConsensusSets = new BitSet[modes.length];
+    double[] infScores = new double[modelCount * modes.length];
+    double[] f1Scores = new double[modelCount * modes.length];
+    scoringPool
+        .submit(
+            () -> {
+              IntStream.range(0, modes.length)
+                  .parallel()
+                  .forEach(
+                      modeIndex -> {
+                        Set<ConsensusInteraction> targetConsensusSet =
+                            consensusSet(
+                                fullInteractionResult,
+                                fullInteractionResult.aggregatedResult().sortedInteractions(),
+                                confidenceLevel,
+                                modes[modeIndex]);
+                        logger.debug(
+                            "Mode {}: Prepared target consensus set with {} entries",
+                            modes[modeIndex],
+                            targetConsensusSet.size());
+                        targetConsensusSets[modeIndex] =
+                            scoringEngine.bitsetOf(targetConsensusSet);
+                      });
+
+              IntStream.range(0, modelCount * modes.length)
+                  .parallel()
+                  .forEach(
+                      cell -> {
+                        String modelName = modelNames.get(cell / modes.length);
+                        ConsensusMode mode = modes[cell % modes.length];
+                        List<ConsensusInteraction> modelInteractions =
+                            fullInteractionResult
+                                .perModelResults()
+                                .get(modelName)
+                                .sortedInteractions();
+                        var scores =
+                            scoringEngine.score(
+                                targetConsensusSets[cell % modes.length],
+                                scoringEngine.bitsetOf(
+                                    consensusSet(
+                                        fullInteractionResult,
+                                        modelInteractions,
+                                        confidenceLevel,
+                                        mode)));
+                        infScores[cell] = scores.inf();
+                        f1Scores[cell] = scores.f1();
+                        logger.debug(
+                            "Model {}: Mode {}: INF = {}, F1 = {}",
+                            modelName,
+                            mode,
+                            scores.inf(),
+                            scores.f1());
+                      });
+            })
+        .join();
+
+    for (int i = 0; i < modelCount; i++) {
+      String modelName = modelNames.get(i);
+      Map<ConsensusMode, Double> infs = new EnumMap<>(ConsensusMode.class);
+      Map<ConsensusMode, Double> f1s = new EnumMap<>(ConsensusMode.class);
+      for (int modeIndex = 0; modeIndex < modes.length; modeIndex++) {
+        infs.put(modes[modeIndex], infScores[i * modes.length + modeIndex]);
+        f1s.put(modes[modeIndex], f1Scores[i * modes.length + modeIndex]);
+      }
+      infScoresPerModel.put(modelName, infs);
+      f1ScoresPerModel.put(modelName, f1s);
+      ranksPerModel.put(modelName, new EnumMap<>(ConsensusMode.class));
     }
 
-    // Iterate through each ConsensusMode to calculate scores and ranks
-    for (ConsensusMode modeToAnalyze : ConsensusMode.values()) {
-      logger.info("Processing models for ConsensusMode: {}", modeToAnalyze);
-
-      // 1. Determine the target consensus set for the current modeToAnalyze
-      Set<ConsensusInteraction> targetConsensusSet =
-          determineConsensusSet(
-              fullInteractionResult.aggregatedResult().sortedInteractions(),
-              confidenceLevel,
-              modeToAnalyze);
-      logger.debug(
-          "Mode {}: Prepared target consensus set with {} entries",
-          modeToAnalyze,
-          targetConsensusSet.size());
-
-      Map<String, Double> currentModeInfScores = new HashMap<>();
-
-      // 2. Calculate scores for each model for the current modeToAnalyze
-      for (AnalyzedModel model : analyzedModels) {
-        List<ConsensusInteraction> modelInteractions =
-            fullInteractionResult.perModelResults().get(model.name()).sortedInteractions();
-        Set<ConsensusInteraction> modelConsensusSet =
-            determineConsensusSet(modelInteractions, confidenceLevel, modeToAnalyze);
-
-        double inf, f1;
-        if (confidenceLevel == null) { // Fuzzy mode
-          inf =
-              InteractionNetworkFidelity.calculateFuzzy(
-                  targetConsensusSet,
-                  modelConsensusSet,
-                  requiredInteractionSet,
-                  forbiddenInteractionSet);
-          f1 =
-              F1score.calculateFuzzy(
-                  targetConsensusSet,
-                  modelConsensusSet,
-                  requiredInteractionSet,
-                  forbiddenInteractionSet);
-        } else { // Threshold mode
-          inf =
-              InteractionNetworkFidelity.calculate(
-                  targetConsensusSet,
-                  modelConsensusSet,
-                  requiredInteractionSet,
-                  forbiddenInteractionSet);
-          f1 =
-              F1score.calculate(
-                  targetConsensusSet,
-                  modelConsensusSet,
-                  requiredInteractionSet,
-                  forbiddenInteractionSet);
-        }
-        infScoresPerModel.get(model.name()).put(modeToAnalyze, inf);
-        f1ScoresPerModel.get(model.name()).put(modeToAnalyze, f1);
-        currentModeInfScores.put(model.name(), inf);
-        logger.debug("Model {}: Mode {}: INF = {}, F1 = {}", model.name(), modeToAnalyze, inf, f1);
+    // 3. Determine ranks for each mode based on INF scores
+    for (int modeIndex = 0; modeIndex < modes.length; modeIndex++) {
+      ConsensusMode modeToAnalyze = modes[modeIndex];
+      double[] infs = new double[modelCount];
+      double[] f1s = new double[modelCount];
+      for (int i = 0; i < modelCount; i++) {
+        infs[i] = infScores[i * modes.length + modeIndex];
+        f1s[i] = f1Scores[i * modes.length + modeIndex];
       }
 
-      // 3. Determine ranks for the current modeToAnalyze based on INF scores
-      final List<Double> sortedInfsForMode =
-          currentModeInfScores.values().stream().sorted(Comparator.reverseOrder()).toList();
-
-      for (AnalyzedModel model : analyzedModels) {
-        double modelInf = currentModeInfScores.get(model.name());
-        int rank = sortedInfsForMode.indexOf(modelInf) + 1;
-        ranksPerModel.get(model.name()).put(modeToAnalyze, rank);
-        logger.trace("Model {}: Mode {}: Assigned rank {}", model.name(), modeToAnalyze, rank);
+      int[] ranks = modelRanking.rank(infs, f1s);
+      for (int i = 0; i < modelCount; i++) {
+        String modelName = modelNames.get(i);
+        ranksPerModel.get(modelName).put(modeToAnalyze, ranks[i]);
+        logger.trace("Model {}: Mode {}: Assigned rank {}", modelName, modeToAnalyze, ranks[i]);
       }
     }
-
-    // 4. Create RankedModel records
-    List<RankedModel> rankedModelsResult =
-        analyzedModels.stream()
-            .map(
-                model ->
-                    new RankedModel(
-                        model.name(),
-                        model.basePairsAndStackings(),
-                        model.canonicalBasePairs(),
-                        model.nonCanonicalBasePairs(),
-                        model.stackings(),
-                        infScoresPerModel.get(model.name()),
-                        f1ScoresPerModel.get(model.name()),
-                        ranksPerModel.get(model.name()),
-                        dotBracketsPerModel.get(model.name()).toStringWithStrands()))
-            .collect(Collectors.toList());
-
-    // 5. Sort the final list based on the rank of the originally requested consensusMode
-    rankedModelsResult.sort(
-        Comparator.comparingInt(
-            rm -> rm.rank().getOrDefault(ConsensusMode.ALL, Integer.MAX_VALUE)));
-
-    logger.info(
-        "Finished generating ranked models, sorted by requested mode: {}", ConsensusMode.ALL);
-    return rankedModelsResult;
+    return new ModelScores(infScoresPerModel, f1ScoresPerModel, ranksPerModel);
   }
 
   private String generateVisualization(
@@ -1627,13 +2398,10 @@ public class TaskProcessorService {
       Set<ConsensusInteraction> forbiddenInteractions,
       List<PdbNamedResidueIdentifier> markedResidues) {
     try {
-      logger.info("Generating visualization using VarnaTzClient (remote varna-tz service)");
       var structureData =
           createStructureData(
               model, interactionsToVisualize, forbiddenInteractions, markedResidues);
-      var svgDoc = varnaTzClient.visualize(structureData);
-      var svgBytes = SVGHelper.export(svgDoc, Format.SVG);
-      return new String(svgBytes);
+      return varnaRenderingService.render(structureData);
     } catch (Exception e) {
       logger.warn("Visualization generation failed", e);
       throw new RuntimeException("Visualization generation failed: " + e.getMessage(), e);
@@ -1651,7 +2419,7 @@ public class TaskProcessorService {
       Set<ConsensusInteraction> interactionsToVisualize,
       Set<ConsensusInteraction> forbiddenInteractions,
       List<PdbNamedResidueIdentifier> markedResidues) {
-    logger.debug("Creating StructureData for VarnaTzClient with confidence coloring");
+    logger.debug("Creating StructureData for VARNA with confidence coloring");
     var structureData = new StructureData();
     var nucleotides = new ArrayList<Nucleotide>();
     var residueToIdMap = new HashMap<PdbNamedResidueIdentifier, Integer>();
@@ -1857,9 +2625,87 @@ public class TaskProcessorService {
     return String.format("#%02X%02X%02X", color.getRed(), color.getGreen(), color.getBlue());
   }
 
+  /** Internal record to hold the scores and ranks of models, keyed by model name. */
+  private record ModelScores(
+      Map<String, Map<ConsensusMode, Double>> infScores,
+      Map<String, Map<ConsensusMode, Double>> f1Scores,
+      Map<String, Map<ConsensusMode, Integer>> ranks) {}
+
   /** Internal record to hold intermediate parsing results. */
   private record ParsedModel(String name, String content, PdbModel structure3D) {}
 
+  /**
+   * @param svgs SVG content to be stored, by SVG name.
+   * @param artifactKeys Keys of SVGs already in the artifact store, by SVG name.
+   */
+  private record ModelSvgs(Map<String, String> svgs, Map<String, String> artifactKeys) {}
+
+  /** Outcome of the MolProbity check of a single model, applied to the task once accepted. */
+  private record MolProbityVerdict(
+      String responseJson, boolean valid, List<String> removalReasons) {}
+
+  /** A model after MolProbity and 2D analysis; {@code analyzed} is null if it was filtered out. */
+  private record ProcessedModel(
+      ParsedModel model, MolProbityVerdict verdict, AnalyzedModel analyzed) {}
+
+  /**
+   * A parsed model with its identifier fingerprint and, if it was processed speculatively, the
+   * result or failure of processing.
+   */
+  private record StreamedModel(
+      ParsedModel parsed,
+      List<PdbNamedResidueIdentifier> fingerprint,
+      ProcessedModel processed,
+      RuntimeException failure) {}
+
+  /** State shared by all models streamed within a single task. */
+  private record StreamingContext(
+      Task task,
+      AtomicInteger currentStepCounter,
+      int totalSteps,
+      int modelCount,
+      RnalyzerClient rnalyzerClient,
+      MolProbityFilter filter,
+      pl.poznan.put.Analyzer analyzer,
+      Semaphore window,
+      Set<String> molProbityReported,
+      Set<String> analysisReported) {
+    StreamingContext(
+        Task task,
+        AtomicInteger currentStepCounter,
+        int totalSteps,
+        int modelCount,
+        RnalyzerClient rnalyzerClient,
+        MolProbityFilter filter,
+        pl.poznan.put.Analyzer analyzer,
+        Semaphore window) {
+      this(
+          task,
+          currentStepCounter,
+          totalSteps,
+          modelCount,
+          rnalyzerClient,
+          filter,
+          analyzer,
+          window,
+          ConcurrentHashMap.newKeySet(),
+          ConcurrentHashMap.newKeySet());
+    }
+
+    void acquireWindow() {
+      try {
+        window.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for a streaming slot", e);
+      }
+    }
+
+    void releaseWindow() {
+      window.release();
+    }
+  }
+
   /**
    * Determines if a consensus interaction should be considered based on the analysis mode (fuzzy or
    * threshold) and reference structure constraints.
@@ -6,9 +6,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import pl.poznan.put.api.exception.TaskNotFoundException;
-import pl.poznan.put.api.model.Task;
-import pl.poznan.put.api.model.TaskStatus;
 import pl.poznan.put.api.repository.TaskRepository;
 
 @Service
@@ -22,37 +19,14 @@ public class TaskProgressPersistenceService {
     this.taskRepository = taskRepository;
   }
 
+  /**
+   * Writes the progress columns of a task with a single UPDATE, without loading the entity. The
+   * update is skipped if the stored progress is already further or the task is finished, so a
+   * late flush never overwrites the final state.
+   */
   @Transactional(propagation = Propagation.REQUIRES_NEW)
   public void persistProgressUpdate(
       String taskId, int currentStep, int totalSteps, String progressMessage) {
-    Task task =
-        taskRepository
-            .findById(taskId)
-            .orElseThrow(
-                () ->
-                    new TaskNotFoundException(
-                        taskId + " (while attempting to persist progress update)"));
-
-    // If task is PENDING, transition it to PROCESSING along with this progress update.
-    // This ensures the status change is atomic with the first meaningful progress step.
-    if (task.getStatus() == TaskStatus.PENDING) {
-      task.setStatus(TaskStatus.PROCESSING);
-      logger.info(
-          "Task {} [persistProgressUpdate]: Transitioning status from PENDING to PROCESSING.",
-          taskId);
-    }
-
-    task.setCurrentProgress(currentStep);
-    task.setTotalProgressSteps(totalSteps); // Ensure consistency
-    task.setProgressMessage(progressMessage);
-
-    logger.info(
-        "Task {} [persistProgressUpdate]: Attempting to persist: currentStep={}, totalSteps={},"
-            + " message='{}'",
-        taskId,
-        currentStep,
-        totalSteps,
-        progressMessage);
     if (totalSteps <= 0) {
       logger.error(
           "Task {} [persistProgressUpdate]: totalSteps is {} during persist. This is problematic"
@@ -60,17 +34,29 @@ public class TaskProgressPersistenceService {
           taskId,
           totalSteps);
     }
-    // It's possible currentStep was clamped to totalSteps if currentStepCounter > totalSteps.
-    // Math.min(currentStepCounterValue, totalSteps) was used to calculate 'currentStep' passed
-    // here.
-    // So, currentStep should not be > totalSteps unless totalSteps is 0 or negative.
 
-    taskRepository.saveAndFlush(task); // Ensures data hits DB and new transaction commits.
-    logger.info(
-        "Task {} progress (persisted in new tx): [{}/{}] {}",
-        task.getId(),
-        task.getCurrentProgress(),
-        task.getTotalProgressSteps(),
+    int updated = taskRepository.updateProgress(taskId, currentStep, totalSteps, progressMessage);
+    logger.debug(
+        "Task {} progress (persisted in new tx, {} rows): [{}/{}] {}",
+        taskId,
+        updated,
+        currentStep,
+        totalSteps,
         progressMessage);
   }
+
+  /**
+   * Transitions a PENDING task to PROCESSING together with its first progress update, so the
+   * status change is visible immediately.
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public void persistProcessingStarted(
+      String taskId, int currentStep, int totalSteps, String progressMessage) {
+    if (taskRepository.markProcessing(taskId) > 0) {
+      logger.info(
+          "Task {} [persistProcessingStarted]: Transitioning status from PENDING to PROCESSING.",
+          taskId);
+    }
+    persistProgressUpdate(taskId, currentStep, totalSteps, progressMessage);
+  }
 }
@@ -0,0 +1,130 @@
+package pl.poznan.put.api.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.poznan.put.api.dto.TaskStatusResponse;
+import pl.poznan.put.api.model.Task;
+import pl.poznan.put.api.model.TaskStatus;
+
+/**
+ * In-memory progress of the tasks being processed. Status reads consult it before the database,
+ * so progress is always current, while the database receives at most one narrow UPDATE per task
+ * per flush interval. The transition to PROCESSING is written immediately and the final state is
+ * written together with the task entity.
+ */
+@Service
+public class TaskProgressRegistry {
+  private static final Logger logger = LoggerFactory.getLogger(TaskProgressRegistry.class);
+
+  private final TaskProgressPersistenceService taskProgressPersistenceService;
+  private final TaskEventPublisher taskEventPublisher;
+  private final ConcurrentMap<String, TaskStatusResponse> snapshots = new ConcurrentHashMap<>();
+  private final Set<String> dirtyTaskIds = ConcurrentHashMap.newKeySet();
+
+  public TaskProgressRegistry(
+      TaskProgressPersistenceService taskProgressPersistenceService,
+      TaskEventPublisher taskEventPublisher) {
+    this.taskProgressPersistenceService = taskProgressPersistenceService;
+    this.taskEventPublisher = taskEventPublisher;
+  }
+
+  /**
+   * Records the progress of a task. Callers must serialize updates of the same task.
+   *
+   * @param task The task being processed.
+   * @param currentProgress The number of completed steps.
+   * @param totalProgressSteps The total number of steps.
+   * @param progressMessage The description of the last step.
+   */
+  public void update(
+      Task task, int currentProgress, int totalProgressSteps, String progressMessage) {
+    Map<String, List<String>> removalReasons = new HashMap<>();
+    task.getRemovalReasons()
+        .forEach((modelName, reasons) -> removalReasons.put(modelName, new ArrayList<>(reasons)));
+    TaskStatusResponse snapshot =
+        new TaskStatusResponse(
+            task.getId(),
+            TaskStatus.PROCESSING,
+            task.getCreatedAt(),
+            task.getMessage(),
+            removalReasons,
+            currentProgress,
+            totalProgressSteps,
+            progressMessage);
+
+    if (snapshots.put(task.getId(), snapshot) == null) {
+      // A status transition, written through immediately
+      taskProgressPersistenceService.persistProcessingStarted(
+          task.getId(), currentProgress, totalProgressSteps, progressMessage);
+    } else {
+      dirtyTaskIds.add(task.getId());
+    }
+    taskEventPublisher.publishProgress(snapshot);
+  }
+
+  /**
+   * @param taskId The id of the task.
+   * @return The current status of the task, if it is being processed.
+   */
+  public Optional<TaskStatusResponse> find(String taskId) {
+    return Optional.ofNullable(snapshots.get(taskId));
+  }
+
+  /**
+   * Drops the entry of a task once the current transaction completes, i.e. once its final state
+   * is visible in the database. Without an active transaction the entry is dropped immediately.
+   *
+   * @param taskId The id of the task.
+   */
+  public void releaseAfterCompletion(String taskId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      release(taskId);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            release(taskId);
+          }
+        });
+  }
+
+  /** Writes the latest progress of every task updated since the previous flush. */
+  @Scheduled(fixedDelayString = "${progress.flush-interval-ms:1000}")
+  public void flush() {
+    for (String taskId : dirtyTaskIds) {
+      dirtyTaskIds.remove(taskId);
+      TaskStatusResponse snapshot = snapshots.get(taskId);
+      if (snapshot == null) {
+        continue;
+      }
+      try {
+        taskProgressPersistenceService.persistProgressUpdate(
+            taskId,
+            snapshot.currentProgress(),
+            snapshot.totalProgressSteps(),
+            snapshot.progressMessage());
+      } catch (Exception e) {
+        logger.warn("Failed to flush progress of task {}: {}", taskId, e.getMessage());
+      }
+    }
+  }
+
+  private void release(String taskId) {
+    dirtyTaskIds.remove(taskId);
+    snapshots.remove(taskId);
+  }
+}
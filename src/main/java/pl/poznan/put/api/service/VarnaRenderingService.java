@@ -0,0 +1,205 @@
+package pl.poznan.put.api.service;
+
+import fr.orsay.lri.varna.models.VARNAConfig;
+import fr.orsay.lri.varna.models.rna.ModeleBP;
+import fr.orsay.lri.varna.models.rna.RNA;
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.poznan.put.DotBracketEncoder;
+import pl.poznan.put.api.exception.VisualizationException;
+import pl.poznan.put.utility.svg.Format;
+import pl.poznan.put.utility.svg.SVGHelper;
+import pl.poznan.put.varna.model.BasePair;
+import pl.poznan.put.varna.model.Nucleotide;
+import pl.poznan.put.varna.model.StructureData;
+
+/**
+ * Draws {@link StructureData} as SVG with VARNA. With {@code varna.renderer=embedded} structures
+ * are drawn in-process by a bounded pool of reusable headless renderers, otherwise they are sent
+ * to the remote varna-tz service. Core VARNA has no glyphs for stackings, so structures with
+ * stackings, as well as those the embedded renderer fails to draw, are still rendered remotely.
+ */
+@Service
+public class VarnaRenderingService implements DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(VarnaRenderingService.class);
+
+  private final VarnaTzClient varnaTzClient;
+  private final boolean embedded;
+  private final BlockingQueue<EmbeddedRenderer> renderers;
+
+  public VarnaRenderingService(
+      VarnaTzClient varnaTzClient,
+      @Value("${varna.renderer:remote}") String renderer,
+      @Value("${varna.embedded.pool-size:4}") int poolSize)
+      throws IOException {
+    this.varnaTzClient = varnaTzClient;
+    this.embedded = "embedded".equalsIgnoreCase(renderer);
+    int size = embedded ? Math.max(1, poolSize) : 0;
+    this.renderers = new ArrayBlockingQueue<>(Math.max(1, size));
+    for (int i = 0; i < size; i++) {
+      renderers.add(new EmbeddedRenderer());
+    }
+    logger.info(
+        "VARNA rendering: {}, embedded renderers: {}", embedded ? "embedded" : "remote", size);
+  }
+
+  /**
+   * @param structureData The structure to draw.
+   * @return The SVG drawing.
+   * @throws VisualizationException If neither the embedded nor the remote renderer succeeds.
+   */
+  public String render(StructureData structureData) throws VisualizationException {
+    boolean hasStackings = structureData.stackings != null && !structureData.stackings.isEmpty();
+    if (embedded && !hasStackings) {
+      try {
+        return renderEmbedded(structureData);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new VisualizationException("Interrupted while waiting for a VARNA renderer", e);
+      } catch (Exception e) {
+        logger.warn("Embedded VARNA rendering failed, using varna-tz: {}", e.getMessage());
+      }
+    }
+    return renderRemote(structureData);
+  }
+
+  @Override
+  public void destroy() {
+    renderers.forEach(EmbeddedRenderer::close);
+  }
+
+  private String renderRemote(StructureData structureData) throws VisualizationException {
+    logger.debug("Generating visualization using VarnaTzClient (remote varna-tz service)");
+    var svgDoc = varnaTzClient.visualize(structureData);
+    try {
+      return new String(SVGHelper.export(svgDoc, Format.SVG), StandardCharsets.UTF_8);
+    } catch (Exception e) {
+      throw new VisualizationException("Failed to export the varna-tz drawing", e);
+    }
+  }
+
+  private String renderEmbedded(StructureData structureData) throws Exception {
+    EmbeddedRenderer renderer = renderers.take();
+    try {
+      return renderer.render(structureData);
+    } finally {
+      renderers.add(renderer);
+    }
+  }
+
+  /**
+   * A headless VARNA renderer with its own configuration and scratch file, used by one thread at a
+   * time.
+   */
+  private static final class EmbeddedRenderer {
+    private final VARNAConfig config = new VARNAConfig();
+    private final Path scratchFile;
+
+    EmbeddedRenderer() throws IOException {
+      scratchFile = Files.createTempFile("varna-", ".svg");
+    }
+
+    String render(StructureData structureData) throws Exception {
+      List<Nucleotide> nucleotides =
+          structureData.nucleotides.stream()
+              .sorted(Comparator.comparingInt(nucleotide -> nucleotide.id))
+              .toList();
+      Map<Integer, Integer> indices = new HashMap<>();
+      StringBuilder sequence = new StringBuilder(nucleotides.size());
+      for (Nucleotide nucleotide : nucleotides) {
+        indices.put(nucleotide.id, indices.size());
+        sequence.append(nucleotide.character);
+      }
+
+      List<BasePair> basePairs =
+          structureData.basePairs == null ? List.of() : structureData.basePairs;
+      List<int[]> canonicalPairs = new ArrayList<>();
+      for (BasePair basePair : basePairs) {
+        if (basePair.canonical) {
+          canonicalPairs.add(new int[] {indices.get(basePair.id1), indices.get(basePair.id2)});
+        }
+      }
+      // Nested canonical pairs form the layout, all other pairs are drawn as auxiliary ones
+      String structure =
+          DotBracketEncoder.encode(nucleotides.size(), canonicalPairs).replaceAll("[^()]", ".");
+      int[] partners = partners(structure);
+
+      RNA rna = new RNA();
+      rna.setRNA(sequence.toString(), structure);
+      for (int i = 0; i < nucleotides.size(); i++) {
+        Nucleotide nucleotide = nucleotides.get(i);
+        rna.getBaseAt(i).setBaseNumber(nucleotide.number);
+        if (nucleotide.outlineColor != null) {
+          Color outlineColor = Color.decode(nucleotide.outlineColor);
+          rna.getBaseAt(i).getStyleBase().setBaseOutlineColor(outlineColor);
+        }
+      }
+      for (BasePair basePair : basePairs) {
+        int i = Math.min(indices.get(basePair.id1), indices.get(basePair.id2));
+        int j = Math.max(indices.get(basePair.id1), indices.get(basePair.id2));
+        ModeleBP modeleBP;
+        if (partners[i] == j) {
+          modeleBP = rna.getBaseAt(i).getStyleBP();
+        } else {
+          modeleBP =
+              new ModeleBP(
+                  rna.getBaseAt(i),
+                  rna.getBaseAt(j),
+                  basePair.edge5,
+                  basePair.edge3,
+                  basePair.stericity);
+          rna.addBPAux(i, j, modeleBP);
+        }
+        if (basePair.color != null) {
+          modeleBP.getStyle().setCustomColor(Color.decode(basePair.color));
+        }
+      }
+
+      rna.drawRNA(RNA.DRAW_MODE_NAVIEW, config);
+      rna.saveRNASVG(scratchFile.toString(), config);
+      return Files.readString(scratchFile, StandardCharsets.UTF_8);
+    }
+
+    void close() {
+      try {
+        Files.deleteIfExists(scratchFile);
+      } catch (IOException e) {
+        logger.warn("Failed to remove VARNA scratch file {}: {}", scratchFile, e.getMessage());
+      }
+    }
+
+    private static int[] partners(String structure) {
+      int[] partners = new int[structure.length()];
+      Arrays.fill(partners, -1);
+      Deque<Integer> opened = new ArrayDeque<>();
+      for (int i = 0; i < structure.length(); i++) {
+        if (structure.charAt(i) == '(') {
+          opened.push(i);
+        } else if (structure.charAt(i) == ')') {
+          int j = opened.pop();
+          partners[i] = j;
+          partners[j] = i;
+        }
+      }
+      return partners;
+    }
+  }
+}
@@ -11,6 +11,7 @@ import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
 import org.apache.batik.util.XMLResourceDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpEntity;
@@ -35,8 +36,10 @@ public class VarnaTzClient {
   private final String serviceUrl;
 
   public VarnaTzClient(
-      @Value("${varna-tz.service.url}") String serviceUrl, ObjectMapper objectMapper) {
-    this.restTemplate = new RestTemplate();
+      @Qualifier("varnaTzRestTemplate") RestTemplate restTemplate,
+      @Value("${varna-tz.service.url}") String serviceUrl,
+      ObjectMapper objectMapper) {
+    this.restTemplate = restTemplate;
     this.objectMapper = objectMapper;
     this.serviceUrl = serviceUrl;
     logger.info("VarnaTzClient initialized with service URL: {}", serviceUrl);
@@ -0,0 +1,75 @@
+package pl.poznan.put.api.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Content-addressed storage of large task artifacts (e.g. SVG documents). Artifacts are stored
+ * compressed with gzip and identified by the SHA-256 of their uncompressed content, so identical
+ * artifacts of different tasks are stored once.
+ */
+public interface ArtifactStore {
+  /**
+   * Stores an artifact unless an identical one is already stored.
+   *
+   * @param content The uncompressed content.
+   * @return The key of the artifact.
+   * @throws IOException if the artifact cannot be written.
+   */
+  String put(byte[] content) throws IOException;
+
+  /**
+   * Stores an artifact written as a stream, so the content is never held in memory as a whole.
+   * The key is only known once the content is written, so an identical artifact is written again
+   * and then discarded.
+   *
+   * @param writer Writes the uncompressed content to the given stream, without closing it.
+   * @return The key of the artifact.
+   * @throws IOException if the writer fails or the artifact cannot be written.
+   */
+  String put(ContentWriter writer) throws IOException;
+
+  /**
+   * @param key The key of the artifact.
+   * @return Whether the artifact is stored.
+   */
+  boolean exists(String key);
+
+  /**
+   * Opens the gzip-compressed content of an artifact, to be passed to clients as is.
+   *
+   * @param key The key of the artifact.
+   * @return The compressed stream, which the caller must close.
+   * @throws IOException if the artifact does not exist or cannot be read.
+   */
+  InputStream openCompressed(String key) throws IOException;
+
+  /**
+   * Opens the uncompressed content of an artifact.
+   *
+   * @param key The key of the artifact.
+   * @return The uncompressed stream, which the caller must close.
+   * @throws IOException if the artifact does not exist or cannot be read.
+   */
+  InputStream open(String key) throws IOException;
+
+  /**
+   * Removes artifacts which are not referenced and were neither stored nor read since the cutoff.
+   * The cutoff protects artifacts of running tasks, whose keys are not saved yet.
+   *
+   * @param cutoff The time before which unreferenced artifacts are considered unused.
+   * @param referencedKeys The keys of artifacts still referenced by tasks, which are kept.
+   * @return The number of removed artifacts.
+   * @throws IOException if the store cannot be traversed.
+   */
+  int deleteUnusedSince(Instant cutoff, Set<String> referencedKeys) throws IOException;
+
+  /** Produces the content of an artifact. */
+  @FunctionalInterface
+  interface ContentWriter {
+    void writeTo(OutputStream output) throws IOException;
+  }
+}
@@ -0,0 +1,11 @@
+package pl.poznan.put.api.storage;
+
+import java.io.InputStream;
+
+/**
+ * An open artifact.
+ *
+ * @param stream The content, which the consumer must close.
+ * @param gzipped Whether the content is gzip-compressed.
+ */
+public record ArtifactStream(InputStream stream, boolean gzipped) {}
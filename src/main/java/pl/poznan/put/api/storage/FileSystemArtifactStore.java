@@ -0,0 +1,185 @@
+package pl.poznan.put.api.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pl.poznan.put.api.util.ContentHash;
+
+/**
+ * Stores artifacts as {@code <directory>/<first two hex digits>/<sha256>.gz}. Files are written to
+ * a temporary name and moved into place, so readers never see partial artifacts. The modification
+ * time of a file is refreshed whenever it is stored or read, and serves as its last use for
+ * cleanup of artifacts no task refers to.
+ */
+@Component
+public class FileSystemArtifactStore implements ArtifactStore {
+  private static final Logger logger = LoggerFactory.getLogger(FileSystemArtifactStore.class);
+  private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+  private static final String EXTENSION = ".gz";
+
+  private final Path directory;
+
+  public FileSystemArtifactStore(@Value("${artifacts.directory}") String directory)
+      throws IOException {
+    this.directory = Path.of(directory);
+    Files.createDirectories(this.directory);
+    logger.info("Storing artifacts in {}", this.directory.toAbsolutePath());
+  }
+
+  @Override
+  public String put(byte[] content) throws IOException {
+    String key = ContentHash.sha256(content);
+    Path path = pathOf(key);
+    if (Files.exists(path)) {
+      touch(path);
+      return key;
+    }
+
+    Files.createDirectories(path.getParent());
+    Path temporary = Files.createTempFile(path.getParent(), key, ".tmp");
+    try {
+      try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(temporary))) {
+        output.write(content);
+      }
+      moveIntoPlace(temporary, key, path);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    return key;
+  }
+
+  @Override
+  public String put(ContentWriter writer) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+
+    // Written next to the shard directories, so the final move stays within one file system
+    Path temporary = Files.createTempFile(directory, "artifact", ".tmp");
+    try {
+      try (OutputStream compressed = new GZIPOutputStream(Files.newOutputStream(temporary));
+          OutputStream output = new DigestOutputStream(compressed, digest)) {
+        writer.writeTo(output);
+      }
+      String key = HexFormat.of().formatHex(digest.digest());
+      Path path = pathOf(key);
+      if (Files.exists(path)) {
+        touch(path);
+        return key;
+      }
+      Files.createDirectories(path.getParent());
+      moveIntoPlace(temporary, key, path);
+      return key;
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  @Override
+  public boolean exists(String key) {
+    return Files.exists(pathOf(key));
+  }
+
+  @Override
+  public InputStream openCompressed(String key) throws IOException {
+    Path path = pathOf(key);
+    InputStream stream = Files.newInputStream(path);
+    touch(path);
+    return stream;
+  }
+
+  @Override
+  public InputStream open(String key) throws IOException {
+    return new GZIPInputStream(openCompressed(key));
+  }
+
+  @Override
+  public int deleteUnusedSince(Instant cutoff, Set<String> referencedKeys) throws IOException {
+    List<Path> unused;
+    try (Stream<Path> paths = Files.walk(directory)) {
+      unused =
+          paths
+              .filter(Files::isRegularFile)
+              .filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+              .filter(path -> !referencedKeys.contains(keyOf(path)))
+              .filter(path -> isModifiedBefore(path, cutoff))
+              .toList();
+    }
+    int removed = 0;
+    for (Path path : unused) {
+      if (Files.deleteIfExists(path)) {
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  private static void moveIntoPlace(Path temporary, String key, Path path) throws IOException {
+    try {
+      try {
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, path);
+      }
+    } catch (FileAlreadyExistsException e) {
+      // Stored concurrently by another task, the content is identical
+      logger.trace("Artifact {} was stored concurrently", key);
+    }
+  }
+
+  private Path pathOf(String key) {
+    if (!KEY_PATTERN.matcher(key).matches()) {
+      throw new IllegalArgumentException("Invalid artifact key: " + key);
+    }
+    return directory.resolve(key.substring(0, 2)).resolve(key + EXTENSION);
+  }
+
+  private static String keyOf(Path path) {
+    String fileName = path.getFileName().toString();
+    return fileName.substring(0, fileName.length() - EXTENSION.length());
+  }
+
+  private static void touch(Path path) {
+    try {
+      Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+    } catch (NoSuchFileException e) {
+      // Removed by cleanup in the meantime, the caller will notice on its own
+    } catch (IOException e) {
+      logger.warn("Failed to update modification time of {}: {}", path, e.getMessage());
+    }
+  }
+
+  private static boolean isModifiedBefore(Path path, Instant cutoff) {
+    try {
+      return Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+}
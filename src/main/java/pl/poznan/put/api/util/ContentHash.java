@@ -0,0 +1,31 @@
+package pl.poznan.put.api.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public final class ContentHash {
+  private ContentHash() {}
+
+  /**
+   * @param content The text to hash.
+   * @return The SHA-256 of the UTF-8 encoded text as a lowercase hex string.
+   */
+  public static String sha256(String content) {
+    return sha256(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @param content The bytes to hash.
+   * @return The SHA-256 of the bytes as a lowercase hex string.
+   */
+  public static String sha256(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package pl.poznan.put.api.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+import pl.poznan.put.api.dto.CacheStats;
+
+/**
+ * A thread-safe, least-recently-used cache bounded by the total weight of its values. Values
+ * heavier than the whole cache are not stored at all.
+ */
+public class LruCache<K, V> {
+  private final String name;
+  private final long maxWeight;
+  private final ToLongFunction<V> weigher;
+  private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long weight;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public LruCache(String name, long maxWeight, ToLongFunction<V> weigher) {
+    this.name = name;
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+  }
+
+  /** Creates a cache bounded by the number of entries. */
+  public LruCache(String name, int maxEntries) {
+    this(name, maxEntries, value -> 1L);
+  }
+
+  public synchronized Optional<V> get(K key) {
+    V value = entries.get(key);
+    if (value == null) {
+      misses++;
+      return Optional.empty();
+    }
+    hits++;
+    return Optional.of(value);
+  }
+
+  public synchronized void put(K key, V value) {
+    long valueWeight = weigher.applyAsLong(value);
+    if (valueWeight > maxWeight) {
+      return;
+    }
+
+    V previous = entries.put(key, value);
+    if (previous != null) {
+      weight -= weigher.applyAsLong(previous);
+    }
+    weight += valueWeight;
+
+    Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+    while (weight > maxWeight && iterator.hasNext()) {
+      Map.Entry<K, V> eldest = iterator.next();
+      weight -= weigher.applyAsLong(eldest.getValue());
+      iterator.remove();
+      evictions++;
+    }
+  }
+
+  public synchronized void invalidate(K key) {
+    V previous = entries.remove(key);
+    if (previous != null) {
+      weight -= weigher.applyAsLong(previous);
+    }
+  }
+
+  public synchronized CacheStats stats() {
+    return new CacheStats(name, hits, misses, evictions, entries.size(), weight, maxWeight);
+  }
+}
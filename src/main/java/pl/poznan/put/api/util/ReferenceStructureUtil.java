@@ -2,9 +2,12 @@ package pl.poznan.put.api.util;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import pl.poznan.put.AnalyzedModel;
+import pl.poznan.put.pdb.ChainNumberICode;
 import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
+import pl.poznan.put.pdb.analysis.PdbModel;
 import pl.poznan.put.pdb.analysis.PdbResidue;
 import pl.poznan.put.structure.*;
 import pl.poznan.put.structure.formats.DefaultDotBracket;
@@ -16,6 +19,29 @@ public class ReferenceStructureUtil {
 
   public static ReferenceParseResult readReferenceStructure(
       String dotBracketInput, AnalyzedModel model) {
+    return readReferenceStructure(dotBracketInput, model.structure3D(), model::findNamedResidue);
+  }
+
+  /**
+   * Reads the reference structure of a model which was not analyzed, e.g. one restored from its
+   * PDB content.
+   *
+   * @param dotBracketInput The reference structure in dot-bracket notation.
+   * @param structure3D The 3D model the reference structure describes.
+   * @return The base pairs and the residues marked as forbidden in the reference.
+   */
+  public static ReferenceParseResult readReferenceStructure(
+      String dotBracketInput, PdbModel structure3D) {
+    return readReferenceStructure(
+        dotBracketInput,
+        structure3D,
+        query -> structure3D.findResidue(query).namedResidueIdentifier());
+  }
+
+  private static ReferenceParseResult readReferenceStructure(
+      String dotBracketInput,
+      PdbModel structure3D,
+      Function<ChainNumberICode, PdbNamedResidueIdentifier> namedResidue) {
     if (dotBracketInput == null || dotBracketInput.isBlank()) {
       return new ReferenceParseResult(Collections.emptyList(), Collections.emptyList());
     }
@@ -25,7 +51,7 @@ public class ReferenceStructureUtil {
 
     // DefaultDotBracket.fromString handles the multi-line format
     var dotBracketObj = DefaultDotBracket.fromString(modifiedDotBracketInput);
-    int modelResidueCount = model.structure3D().residues().size();
+    int modelResidueCount = structure3D.residues().size();
 
     if (dotBracketObj.sequence().length() != modelResidueCount) {
       throw new InvalidSequenceLengthException(
@@ -33,7 +59,7 @@ public class ReferenceStructureUtil {
     }
 
     String modelSequence =
-        model.structure3D().residues().stream()
+        structure3D.residues().stream()
             .map(PdbResidue::oneLetterName)
             .map(String::valueOf)
             .map(String::toUpperCase)
@@ -45,7 +71,7 @@ public class ReferenceStructureUtil {
 
     var structure =
         ImmutableDefaultDotBracketFromPdb.of(
-            dotBracketObj.sequence(), dotBracketObj.structure(), model.structure3D());
+            dotBracketObj.sequence(), dotBracketObj.structure(), structure3D);
 
     List<BasePair> basePairs =
         structure.pairs().keySet().stream()
@@ -53,9 +79,9 @@ public class ReferenceStructureUtil {
                 symbol -> {
                   DotBracketSymbol paired = structure.pairs().get(symbol);
                   PdbNamedResidueIdentifier left =
-                      model.findResidue(structure.identifier(symbol)).namedResidueIdentifier();
+                      namedResidue.apply(structure.identifier(symbol));
                   PdbNamedResidueIdentifier right =
-                      model.findResidue(structure.identifier(paired)).namedResidueIdentifier();
+                      namedResidue.apply(structure.identifier(paired));
                   return ImmutableBasePair.of(left, right);
                 })
             .collect(Collectors.toList());
@@ -63,11 +89,7 @@ public class ReferenceStructureUtil {
     List<PdbNamedResidueIdentifier> markedResidues =
         structure.symbols().stream()
             .filter(DotBracketSymbol::isMissing)
-            .map(
-                dotBracketSymbol ->
-                    model
-                        .findResidue(structure.identifier(dotBracketSymbol))
-                        .namedResidueIdentifier())
+            .map(dotBracketSymbol -> namedResidue.apply(structure.identifier(dotBracketSymbol)))
             .toList();
 
     return new ReferenceParseResult(basePairs, markedResidues);
@@ -0,0 +1,161 @@
+package pl.poznan.put.rchie;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import pl.poznan.put.rchie.model.RChieData;
+import pl.poznan.put.rchie.model.RChieInteraction;
+
+/**
+ * Writes {@link RChieData} as an arc diagram SVG: the sequence runs left to right, the top
+ * interactions are drawn as semicircles above it and the bottom ones as semicircles below it, as
+ * in the double-helix plots of R4RNA. The document is streamed to the writer element by element
+ * and all coordinates are integers written through a reused buffer, so drawing an arc allocates
+ * nothing.
+ */
+public final class RChieSvgWriter {
+  /** Horizontal distance between neighbouring nucleotides, even so arc radii are integers. */
+  private static final int UNIT = 10;
+
+  private static final int MARGIN = 20;
+  private static final int TITLE_HEIGHT = 24;
+  private static final int SEQUENCE_HEIGHT = 14;
+  private static final String DEFAULT_COLOR = "#000000";
+
+  private final Writer out;
+  private final char[] digits = new char[11];
+
+  private RChieSvgWriter(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * @param data The sequence and the arcs to draw, with 1-based nucleotide indices.
+   * @param out The destination of the SVG document, not closed by this method.
+   * @throws IOException If writing fails.
+   */
+  public static void write(RChieData data, Writer out) throws IOException {
+    new RChieSvgWriter(out).writeDocument(data);
+  }
+
+  private void writeDocument(RChieData data) throws IOException {
+    int length = data.sequence().length();
+    int topRadius = maxRadius(data.top());
+    int bottomRadius = maxRadius(data.bottom());
+    int titleHeight = data.title().isPresent() ? TITLE_HEIGHT : 0;
+    int topBaseline = MARGIN + titleHeight + topRadius;
+    int bottomBaseline = topBaseline + SEQUENCE_HEIGHT;
+    int width = 2 * MARGIN + length * UNIT;
+    int height = bottomBaseline + bottomRadius + MARGIN;
+
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+    writeInt(width);
+    out.write("\" height=\"");
+    writeInt(height);
+    out.write("\" viewBox=\"0 0 ");
+    writeInt(width);
+    out.write(' ');
+    writeInt(height);
+    out.write("\">\n");
+    out.write("<rect width=\"100%\" height=\"100%\" fill=\"#FFFFFF\"/>\n");
+
+    if (data.title().isPresent()) {
+      out.write("<text x=\"");
+      writeInt(width / 2);
+      out.write("\" y=\"");
+      writeInt(MARGIN + TITLE_HEIGHT / 2);
+      out.write("\" font-family=\"sans-serif\" font-size=\"14\" text-anchor=\"middle\">");
+      writeEscaped(data.title().get());
+      out.write("</text>\n");
+    }
+
+    out.write("<g fill=\"none\" stroke-width=\"1.5\">\n");
+    writeArcs(data.top(), topBaseline, true);
+    writeArcs(data.bottom(), bottomBaseline, false);
+    out.write("</g>\n");
+
+    out.write(
+        "<g font-family=\"monospace\" font-size=\"9\" text-anchor=\"middle\""
+            + " dominant-baseline=\"central\">\n");
+    int sequenceY = topBaseline + SEQUENCE_HEIGHT / 2;
+    for (int i = 1; i <= length; i++) {
+      out.write("<text x=\"");
+      writeInt(center(i));
+      out.write("\" y=\"");
+      writeInt(sequenceY);
+      out.write("\">");
+      writeEscaped(data.sequence().charAt(i - 1));
+      out.write("</text>\n");
+    }
+    out.write("</g>\n");
+    out.write("</svg>\n");
+    out.flush();
+  }
+
+  private void writeArcs(List<RChieInteraction> interactions, int baseline, boolean above)
+      throws IOException {
+    for (RChieInteraction interaction : interactions) {
+      int left = Math.min(interaction.i(), interaction.j());
+      int right = Math.max(interaction.i(), interaction.j());
+      int radius = (right - left) * UNIT / 2;
+      out.write("<path d=\"M");
+      writeInt(center(left));
+      out.write(' ');
+      writeInt(baseline);
+      out.write("A");
+      writeInt(radius);
+      out.write(' ');
+      writeInt(radius);
+      // Clockwise from the left end goes over the top of the arc, counterclockwise under it
+      out.write(above ? " 0 0 1 " : " 0 0 0 ");
+      writeInt(center(right));
+      out.write(' ');
+      writeInt(baseline);
+      out.write("\" stroke=\"");
+      writeEscaped(interaction.color().orElse(DEFAULT_COLOR));
+      out.write("\"/>\n");
+    }
+  }
+
+  private static int maxRadius(List<RChieInteraction> interactions) {
+    int span = 0;
+    for (RChieInteraction interaction : interactions) {
+      span = Math.max(span, Math.abs(interaction.j() - interaction.i()));
+    }
+    return span * UNIT / 2;
+  }
+
+  private static int center(int index) {
+    return MARGIN + (index - 1) * UNIT + UNIT / 2;
+  }
+
+  private void writeInt(int value) throws IOException {
+    if (value < 0) {
+      out.write('-');
+      value = -value;
+    }
+    int position = digits.length;
+    do {
+      digits[--position] = (char) ('0' + value % 10);
+      value /= 10;
+    } while (value > 0);
+    out.write(digits, position, digits.length - position);
+  }
+
+  private void writeEscaped(String text) throws IOException {
+    for (int i = 0; i < text.length(); i++) {
+      writeEscaped(text.charAt(i));
+    }
+  }
+
+  private void writeEscaped(char c) throws IOException {
+    switch (c) {
+      case '&' -> out.write("&amp;");
+      case '<' -> out.write("&lt;");
+      case '>' -> out.write("&gt;");
+      case '"' -> out.write("&quot;");
+      default -> out.write(c);
+    }
+  }
+}
@@ -24,7 +24,15 @@ public class RnalyzerClient implements AutoCloseable {
   private String resourceId;
 
   public RnalyzerClient() {
-    this.restTemplate = new RestTemplate();
+    this(new RestTemplate());
+  }
+
+  /**
+   * @param restTemplate The client used for all requests of the session, e.g. a pooled one shared
+   *     by many sessions.
+   */
+  public RnalyzerClient(RestTemplate restTemplate) {
+    this.restTemplate = restTemplate;
   }
 
   public void initializeSession() {
@@ -0,0 +1,99 @@
+package pl.poznan.put;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import pl.poznan.put.ConsensusInteraction.InteractionCategory;
+import pl.poznan.put.api.consensus.InteractionConflicts;
+
+class ConfidenceSweepTest {
+  private static final double EPSILON = 1e-12;
+
+  @Test
+  void sweepMatchesRescoringEveryLevel() {
+    Random random = new Random(19);
+    for (int round = 0; round < 200; round++) {
+      RandomTask task = RandomTask.generate(random, 2 + random.nextInt(8), 8, 30);
+      Set<ConsensusInteraction> required = task.subset(random, 0.1);
+      Set<ConsensusInteraction> forbidden = task.subset(random, 0.1);
+      forbidden.removeAll(required);
+      int minLevel = 1;
+      int maxLevel = task.models().size();
+
+      for (ConsensusMode mode : ConsensusMode.values()) {
+        var sweep =
+            new ConfidenceSweep(
+                consensusSet(task.interactions(), minLevel, mode),
+                task.models().stream()
+                    .map(modelInteractions -> consensusSet(modelInteractions, minLevel, mode))
+                    .toList(),
+                required,
+                forbidden);
+        var swept = sweep.sweep(minLevel, maxLevel);
+
+        // Every level scored from scratch, as rescoring a task at that level does
+        var engine = new InteractionScoringEngine(task.interactions(), required, forbidden, false);
+        for (int level = minLevel; level <= maxLevel; level++) {
+          var target = engine.bitsetOf(consensusSet(task.interactions(), level, mode));
+          for (int model = 0; model < task.models().size(); model++) {
+            var expected =
+                engine.score(
+                    target, engine.bitsetOf(consensusSet(task.models().get(model), level, mode)));
+            var actual = swept[level - minLevel][model];
+            String context = "Round " + round + ", mode " + mode + ", level " + level;
+            assertEquals(expected.inf(), actual.inf(), EPSILON, "INF in " + context);
+            assertEquals(expected.f1(), actual.f1(), EPSILON, "F1 in " + context);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void modelsWithoutInteractionsScoreZeroAtEveryLevel() {
+    RandomTask task = RandomTask.generate(new Random(21), 4, 8, 20);
+    var target = consensusSet(task.interactions(), 1, ConsensusMode.ALL);
+    for (var consensus : List.of(target, Set.<ConsensusInteraction>of())) {
+      var sweep = new ConfidenceSweep(consensus, List.of(Set.of(), Set.of()), Set.of(), Set.of());
+      for (var level : sweep.sweep(1, task.models().size())) {
+        for (var scores : level) {
+          assertEquals(0.0, scores.inf());
+          assertEquals(0.0, scores.f1());
+        }
+      }
+    }
+  }
+
+  @Test
+  void rejectsOverlappingRequiredAndForbiddenSets() {
+    RandomTask task = RandomTask.generate(new Random(22), 3, 8, 12);
+    Set<ConsensusInteraction> overlapping = Set.of(task.interactions().get(0));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ConfidenceSweep(task.interactions(), List.of(), overlapping, overlapping));
+  }
+
+  /** The consensus set in threshold mode, determined as for a single confidence level. */
+  private static Set<ConsensusInteraction> consensusSet(
+      List<ConsensusInteraction> interactions, int level, ConsensusMode mode) {
+    return InteractionConflicts.resolve(
+        interactions.stream()
+            .filter(
+                interaction ->
+                    switch (mode) {
+                      case CANONICAL -> interaction.category() == InteractionCategory.BASE_PAIR
+                          && interaction.isCanonical();
+                      case NON_CANONICAL -> interaction.category() == InteractionCategory.BASE_PAIR
+                          && !interaction.isCanonical();
+                      case STACKING -> interaction.category() == InteractionCategory.STACKING;
+                      case ALL -> true;
+                    })
+            .filter(interaction -> interaction.modelCount() >= level)
+            .toList(),
+        mode);
+  }
+}
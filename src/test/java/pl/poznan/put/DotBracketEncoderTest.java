@@ -0,0 +1,148 @@
+package pl.poznan.put;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class DotBracketEncoderTest {
+  private static final String OPENING = "([{<ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+  private static final String CLOSING = ")]}>abcdefghijklmnopqrstuvwxyz";
+
+  @Test
+  void encodesNoPairsAsDots() {
+    assertEquals("", DotBracketEncoder.encode(0, List.of()));
+    assertEquals(".....", DotBracketEncoder.encode(5, List.of()));
+  }
+
+  @Test
+  void encodesNestedPairsWithParentheses() {
+    var pairs = List.of(new int[] {0, 11}, new int[] {1, 10}, new int[] {3, 6}, new int[] {8, 2});
+    assertEquals("((((..).).))", DotBracketEncoder.encode(12, pairs));
+  }
+
+  @Test
+  void putsTheSmallerStemOfAPseudoknotInBrackets() {
+    var pairs =
+        List.of(
+            new int[] {0, 9},
+            new int[] {1, 8},
+            new int[] {4, 14},
+            new int[] {5, 13},
+            new int[] {6, 12});
+    assertEquals("[[..(((.]]..))).", DotBracketEncoder.encode(16, pairs));
+  }
+
+  @Test
+  void keepsTheFirstPairOfAResiduePairedTwice() {
+    var pairs = List.of(new int[] {0, 7}, new int[] {0, 5}, new int[] {5, 5});
+    assertEquals("(....)..", DotBracketEncoder.encode(8, pairs));
+  }
+
+  /**
+   * On random structures, decoding the result gives back the input pairs, and the first order
+   * holds as many pairs as the largest non-crossing subset found by brute force.
+   */
+  @Test
+  void decodesToTheInputWithAMaximalFirstOrder() {
+    Random random = new Random(23);
+    for (int round = 0; round < 500; round++) {
+      int length = 6 + random.nextInt(20);
+      List<int[]> pairs = randomMatching(random, length, 1 + random.nextInt(6));
+
+      String structure = DotBracketEncoder.encode(length, pairs);
+      Map<Integer, Set<List<Integer>>> decoded = decode(structure);
+      Set<List<Integer>> all = new TreeSet<>(DotBracketEncoderTest::compare);
+      decoded.values().forEach(all::addAll);
+      assertEquals(asSet(pairs), all, "Pairs of " + structure);
+      assertEquals(
+          largestNonCrossing(pairs),
+          decoded.getOrDefault(0, Set.of()).size(),
+          "First order of " + structure);
+    }
+  }
+
+  private static List<int[]> randomMatching(Random random, int length, int count) {
+    List<Integer> free = new ArrayList<>();
+    for (int i = 0; i < length; i++) {
+      free.add(i);
+    }
+    List<int[]> pairs = new ArrayList<>();
+    while (pairs.size() < count && free.size() >= 2) {
+      int left = free.remove(random.nextInt(free.size()));
+      int right = free.remove(random.nextInt(free.size()));
+      pairs.add(new int[] {left, right});
+    }
+    return pairs;
+  }
+
+  /** The pairs of every pseudoknot order, read with one stack per bracket type. */
+  private static Map<Integer, Set<List<Integer>>> decode(String structure) {
+    Map<Integer, Deque<Integer>> open = new HashMap<>();
+    Map<Integer, Set<List<Integer>>> pairs = new HashMap<>();
+    for (int i = 0; i < structure.length(); i++) {
+      char c = structure.charAt(i);
+      int opening = OPENING.indexOf(c);
+      int closing = CLOSING.indexOf(c);
+      if (opening >= 0) {
+        open.computeIfAbsent(opening, k -> new ArrayDeque<>()).push(i);
+      } else if (closing >= 0) {
+        pairs
+            .computeIfAbsent(closing, k -> new TreeSet<>(DotBracketEncoderTest::compare))
+            .add(List.of(open.get(closing).pop(), i));
+      }
+    }
+    return pairs;
+  }
+
+  private static int largestNonCrossing(List<int[]> pairs) {
+    int best = 0;
+    for (int mask = 0; mask < 1 << pairs.size(); mask++) {
+      List<int[]> subset = new ArrayList<>();
+      for (int k = 0; k < pairs.size(); k++) {
+        if ((mask & 1 << k) != 0) {
+          subset.add(pairs.get(k));
+        }
+      }
+      if (subset.size() > best && isNonCrossing(subset)) {
+        best = subset.size();
+      }
+    }
+    return best;
+  }
+
+  private static boolean isNonCrossing(List<int[]> pairs) {
+    for (int[] first : pairs) {
+      for (int[] second : pairs) {
+        int a = Math.min(first[0], first[1]);
+        int b = Math.max(first[0], first[1]);
+        int c = Math.min(second[0], second[1]);
+        int d = Math.max(second[0], second[1]);
+        if (a < c && c < b && b < d) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static Set<List<Integer>> asSet(List<int[]> pairs) {
+    Set<List<Integer>> set = new TreeSet<>(DotBracketEncoderTest::compare);
+    pairs.forEach(pair -> set.add(List.of(Math.min(pair[0], pair[1]), Math.max(pair[0], pair[1]))));
+    return set;
+  }
+
+  private static int compare(List<Integer> first, List<Integer> second) {
+    return first.get(0).equals(second.get(0))
+        ? Integer.compare(first.get(1), second.get(1))
+        : Integer.compare(first.get(0), second.get(0));
+  }
+}
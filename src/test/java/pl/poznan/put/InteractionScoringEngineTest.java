@@ -0,0 +1,92 @@
+package pl.poznan.put;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class InteractionScoringEngineTest {
+  private static final double EPSILON = 1e-12;
+
+  @Test
+  void thresholdScoresMatchSetBasedMetrics() {
+    compareWithSetBasedMetrics(false);
+  }
+
+  @Test
+  void fuzzyScoresMatchSetBasedMetrics() {
+    compareWithSetBasedMetrics(true);
+  }
+
+  @Test
+  void emptySetsScoreZero() {
+    var engine = new InteractionScoringEngine(List.of(), Set.of(), Set.of(), false);
+    var scores = engine.score(engine.bitsetOf(List.of()), engine.bitsetOf(List.of()));
+    assertEquals(0.0, scores.inf());
+    assertEquals(0.0, scores.f1());
+  }
+
+  @Test
+  void emptyReferenceScoresZeroLikeSetBasedMetrics() {
+    RandomTask task = RandomTask.generate(new Random(3), 4, 8, 12);
+    for (boolean fuzzy : new boolean[] {false, true}) {
+      var engine = new InteractionScoringEngine(task.interactions(), Set.of(), Set.of(), fuzzy);
+      var reference = engine.bitsetOf(List.of());
+      for (List<ConsensusInteraction> modelInteractions : task.models()) {
+        var scores = engine.score(reference, engine.bitsetOf(modelInteractions));
+        Set<ConsensusInteraction> model = new HashSet<>(modelInteractions);
+        // No expected interactions means no true positives, and 0/0 is taken as zero, not NaN
+        assertEquals(0.0, scores.inf());
+        assertEquals(0.0, scores.f1());
+        assertEquals(
+            0.0, InteractionNetworkFidelity.calculate(Set.of(), model, Set.of(), Set.of()));
+        assertEquals(0.0, F1score.calculate(Set.of(), model, Set.of(), Set.of()));
+      }
+    }
+  }
+
+  @Test
+  void rejectsOverlappingRequiredAndForbiddenSets() {
+    RandomTask task = RandomTask.generate(new Random(4), 3, 8, 12);
+    Set<ConsensusInteraction> overlapping = Set.of(task.interactions().get(0));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new InteractionScoringEngine(task.interactions(), overlapping, overlapping, false));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> F1score.calculate(Set.of(), Set.of(), overlapping, overlapping));
+  }
+
+  private static void compareWithSetBasedMetrics(boolean fuzzy) {
+    Random random = new Random(12);
+    for (int round = 0; round < 200; round++) {
+      RandomTask task = RandomTask.generate(random, 2 + random.nextInt(6), 10, 24);
+      Set<ConsensusInteraction> required = task.subset(random, 0.15);
+      Set<ConsensusInteraction> forbidden = task.subset(random, 0.15);
+      forbidden.removeAll(required);
+      Set<ConsensusInteraction> reference = task.subset(random, 0.5);
+
+      var engine = new InteractionScoringEngine(task.interactions(), required, forbidden, fuzzy);
+      var referenceBits = engine.bitsetOf(reference);
+      for (List<ConsensusInteraction> modelInteractions : task.models()) {
+        Set<ConsensusInteraction> model = new HashSet<>(modelInteractions);
+        var scores = engine.score(referenceBits, engine.bitsetOf(model));
+
+        double inf =
+            fuzzy
+                ? InteractionNetworkFidelity.calculateFuzzy(reference, model, required, forbidden)
+                : InteractionNetworkFidelity.calculate(reference, model, required, forbidden);
+        double f1 =
+            fuzzy
+                ? F1score.calculateFuzzy(reference, model, required, forbidden)
+                : F1score.calculate(reference, model, required, forbidden);
+        assertEquals(inf, scores.inf(), EPSILON, "INF in round " + round);
+        assertEquals(f1, scores.f1(), EPSILON, "F1 in round " + round);
+      }
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package pl.poznan.put;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import pl.poznan.put.ModelRanking.Method;
+
+class ModelRankingTest {
+  @Test
+  void ranksTiesByCompetitionAndDense() {
+    double[] inf = {0.5, 0.9, 0.5, 0.7};
+    double[] f1 = new double[inf.length];
+    assertArrayEquals(
+        new int[] {3, 1, 3, 2}, new ModelRanking(Method.COMPETITION, 0.0, false).rank(inf, f1));
+    assertArrayEquals(
+        new int[] {3, 1, 3, 2}, new ModelRanking(Method.DENSE, 0.0, false).rank(inf, f1));
+
+    double[] tied = {0.9, 0.9, 0.5};
+    assertArrayEquals(
+        new int[] {1, 1, 3}, new ModelRanking(Method.COMPETITION, 0.0, false).rank(tied, f1));
+    assertArrayEquals(
+        new int[] {1, 1, 2}, new ModelRanking(Method.DENSE, 0.0, false).rank(tied, f1));
+  }
+
+  @Test
+  void doesNotChainTiesWithinTolerance() {
+    double[] inf = {0.80, 0.79, 0.78};
+    assertArrayEquals(
+        new int[] {1, 1, 3},
+        new ModelRanking(Method.COMPETITION, 0.015, false).rank(inf, new double[3]));
+  }
+
+  @Test
+  void ordersModelsTiedOnInfByF1() {
+    double[] inf = {0.80, 0.79, 0.60};
+    double[] f1 = {0.50, 0.90, 0.95};
+    // The second model has lower INF, but within the tolerance, and better F1
+    assertArrayEquals(
+        new int[] {2, 1, 3}, new ModelRanking(Method.COMPETITION, 0.02, true).rank(inf, f1));
+    assertArrayEquals(
+        new int[] {1, 2, 3}, new ModelRanking(Method.COMPETITION, 0.0, true).rank(inf, f1));
+    assertArrayEquals(
+        new int[] {1, 1, 3}, new ModelRanking(Method.COMPETITION, 0.02, false).rank(inf, f1));
+  }
+
+  @Test
+  void sharesRankWhenF1IsTiedToo() {
+    double[] inf = {0.80, 0.79, 0.80, 0.10};
+    double[] f1 = {0.70, 0.71, 0.50, 0.10};
+    assertArrayEquals(
+        new int[] {1, 1, 3, 4}, new ModelRanking(Method.COMPETITION, 0.02, true).rank(inf, f1));
+    assertArrayEquals(
+        new int[] {1, 1, 2, 3}, new ModelRanking(Method.DENSE, 0.02, true).rank(inf, f1));
+  }
+
+  @Test
+  void ranksNaNFirstAndHandlesNoModels() {
+    double[] inf = {0.5, Double.NaN, 0.7};
+    assertArrayEquals(
+        new int[] {3, 1, 2},
+        new ModelRanking(Method.COMPETITION, 0.0, true).rank(inf, new double[3]));
+    assertArrayEquals(
+        new int[0], new ModelRanking(Method.DENSE, 0.0, true).rank(new double[0], new double[0]));
+  }
+
+  @Test
+  void rejectsInvalidTolerance() {
+    assertThrows(IllegalArgumentException.class, () -> new ModelRanking(Method.DENSE, -1, false));
+    assertThrows(
+        IllegalArgumentException.class, () -> new ModelRanking(Method.DENSE, Double.NaN, false));
+  }
+}
@@ -0,0 +1,124 @@
+package pl.poznan.put;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import pl.poznan.put.ConsensusInteraction.InteractionCategory;
+import pl.poznan.put.notation.LeontisWesthof;
+import pl.poznan.put.pdb.ImmutablePdbNamedResidueIdentifier;
+import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
+
+/**
+ * The interactions of a randomly generated task: every model contains a random subset of a pool
+ * of interactions over a few residues, so residues are shared and base pairs of the same
+ * Leontis-Westhof class conflict often. Counts and probabilities are aggregated as for real tasks.
+ *
+ * @param interactions The aggregated interactions, one per interaction found in any model.
+ * @param models The interactions of each model, the same instances as in the aggregated list.
+ */
+public record RandomTask(
+    List<ConsensusInteraction> interactions, List<List<ConsensusInteraction>> models) {
+  private static final LeontisWesthof[] CLASSES = {
+    LeontisWesthof.values()[0], LeontisWesthof.values()[1]
+  };
+
+  /**
+   * @param random The source of randomness.
+   * @param modelCount The number of models.
+   * @param residueCount The number of residues.
+   * @param poolSize The number of distinct interactions the models choose from.
+   * @return The generated task.
+   */
+  public static RandomTask generate(
+      Random random, int modelCount, int residueCount, int poolSize) {
+    Set<Key> pool = new LinkedHashSet<>();
+    while (pool.size() < poolSize) {
+      int left = 1 + random.nextInt(residueCount - 1);
+      int right = left + 1 + random.nextInt(residueCount - left);
+      if (random.nextInt(4) == 0) {
+        pool.add(new Key(left, right, InteractionCategory.STACKING, Optional.empty()));
+      } else {
+        LeontisWesthof leontisWesthof = CLASSES[random.nextInt(CLASSES.length)];
+        pool.add(new Key(left, right, InteractionCategory.BASE_PAIR, Optional.of(leontisWesthof)));
+      }
+    }
+
+    List<Key> keys = new ArrayList<>(pool);
+    List<Set<Key>> chosen = new ArrayList<>();
+    int[] counts = new int[keys.size()];
+    for (int model = 0; model < modelCount; model++) {
+      Set<Key> modelKeys = new HashSet<>();
+      for (int k = 0; k < keys.size(); k++) {
+        if (random.nextBoolean()) {
+          modelKeys.add(keys.get(k));
+          counts[k]++;
+        }
+      }
+      chosen.add(modelKeys);
+    }
+
+    List<ConsensusInteraction> interactions = new ArrayList<>();
+    List<Key> observed = new ArrayList<>();
+    for (int k = 0; k < keys.size(); k++) {
+      if (counts[k] > 0) {
+        interactions.add(keys.get(k).toInteraction(counts[k], modelCount));
+        observed.add(keys.get(k));
+      }
+    }
+
+    List<List<ConsensusInteraction>> models = new ArrayList<>();
+    for (Set<Key> modelKeys : chosen) {
+      List<ConsensusInteraction> modelInteractions = new ArrayList<>();
+      for (int i = 0; i < observed.size(); i++) {
+        if (modelKeys.contains(observed.get(i))) {
+          modelInteractions.add(interactions.get(i));
+        }
+      }
+      models.add(modelInteractions);
+    }
+    return new RandomTask(interactions, models);
+  }
+
+  /**
+   * @param random The source of randomness.
+   * @param share The probability of choosing each interaction.
+   * @return A random subset of the aggregated interactions.
+   */
+  public Set<ConsensusInteraction> subset(Random random, double share) {
+    Set<ConsensusInteraction> subset = new HashSet<>();
+    for (ConsensusInteraction interaction : interactions) {
+      if (random.nextDouble() < share) {
+        subset.add(interaction);
+      }
+    }
+    return subset;
+  }
+
+  private record Key(
+      int left,
+      int right,
+      InteractionCategory category,
+      Optional<LeontisWesthof> leontisWesthof) {
+    ConsensusInteraction toInteraction(int count, int modelCount) {
+      boolean canonical = category == InteractionCategory.BASE_PAIR && (left + right) % 2 == 0;
+      return new ConsensusInteraction(
+          residue(left),
+          residue(right),
+          category,
+          leontisWesthof,
+          canonical,
+          count,
+          (double) count / modelCount,
+          false,
+          false);
+    }
+
+    private static PdbNamedResidueIdentifier residue(int number) {
+      return ImmutablePdbNamedResidueIdentifier.of("A", number, Optional.empty(), 'G');
+    }
+  }
+}
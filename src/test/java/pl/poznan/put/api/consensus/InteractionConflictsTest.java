@@ -0,0 +1,128 @@
+package pl.poznan.put.api.consensus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+import org.junit.jupiter.api.Test;
+import pl.poznan.put.ConsensusInteraction;
+import pl.poznan.put.ConsensusMode;
+import pl.poznan.put.RandomTask;
+import pl.poznan.put.notation.LeontisWesthof;
+import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
+
+class InteractionConflictsTest {
+  @Test
+  void resolvesConflictsLikeTheIterativeLoop() {
+    Random random = new Random(13);
+    for (int round = 0; round < 300; round++) {
+      RandomTask task = RandomTask.generate(random, 2 + random.nextInt(8), 8, 30);
+      for (ConsensusMode mode : ConsensusMode.values()) {
+        assertEquals(
+            iterativeResolve(task.interactions(), mode),
+            InteractionConflicts.resolve(task.interactions(), mode),
+            "Round " + round + ", mode " + mode);
+      }
+    }
+  }
+
+  @Test
+  void leavesNoConflictingBasePairs() {
+    RandomTask task = RandomTask.generate(new Random(5), 6, 8, 30);
+    Set<ConsensusInteraction> resolved =
+        InteractionConflicts.resolve(task.interactions(), ConsensusMode.ALL);
+    for (ConsensusInteraction first : resolved) {
+      for (ConsensusInteraction second : resolved) {
+        assertFalse(
+            first != second
+                && first.leontisWesthof().isPresent()
+                && first.leontisWesthof().equals(second.leontisWesthof())
+                && sharesResidue(first, second),
+            "Conflicting interactions left: " + first + ", " + second);
+      }
+    }
+  }
+
+  @Test
+  void resolvesNoInteractionsToAMutableEmptySet() {
+    RandomTask task = RandomTask.generate(new Random(7), 2, 8, 4);
+    for (ConsensusMode mode : ConsensusMode.values()) {
+      Set<ConsensusInteraction> resolved = InteractionConflicts.resolve(List.of(), mode);
+      assertTrue(resolved.isEmpty(), "Mode " + mode);
+      assertTrue(resolved.add(task.interactions().get(0)), "Mode " + mode);
+    }
+  }
+
+  @Test
+  void keepsEverythingInStackingMode() {
+    RandomTask task = RandomTask.generate(new Random(9), 6, 8, 30);
+    assertEquals(
+        new HashSet<>(task.interactions()),
+        InteractionConflicts.resolve(task.interactions(), ConsensusMode.STACKING));
+  }
+
+  private static boolean sharesResidue(ConsensusInteraction first, ConsensusInteraction second) {
+    return first.partner1().equals(second.partner1())
+        || first.partner1().equals(second.partner2())
+        || first.partner2().equals(second.partner1())
+        || first.partner2().equals(second.partner2());
+  }
+
+  /**
+   * The conflict resolution replaced by {@link InteractionConflicts}: for every Leontis-Westhof
+   * class, find all interactions sharing a residue and remove the lowest priority one, until there
+   * are no conflicts left.
+   */
+  private static Set<ConsensusInteraction> iterativeResolve(
+      Collection<ConsensusInteraction> interactions, ConsensusMode mode) {
+    var resolvedInteractions = new HashSet<>(interactions);
+    if (mode == ConsensusMode.STACKING) {
+      return resolvedInteractions;
+    }
+
+    Comparator<ConsensusInteraction> conflictComparator =
+        Comparator.comparing(ConsensusInteraction::modelCount)
+            .thenComparing(ConsensusInteraction::partner1)
+            .thenComparing(ConsensusInteraction::partner2);
+    for (var leontisWesthof : LeontisWesthof.values()) {
+      while (true) {
+        MultiValuedMap<PdbNamedResidueIdentifier, ConsensusInteraction> map =
+            new ArrayListValuedHashMap<>();
+        resolvedInteractions.stream()
+            .filter(
+                candidate ->
+                    candidate.category() == ConsensusInteraction.InteractionCategory.BASE_PAIR)
+            .filter(
+                candidate ->
+                    candidate.leontisWesthof().isPresent()
+                        && candidate.leontisWesthof().get() == leontisWesthof)
+            .forEach(
+                candidate -> {
+                  map.put(candidate.partner1(), candidate);
+                  map.put(candidate.partner2(), candidate);
+                });
+
+        List<ConsensusInteraction> conflicting =
+            map.keySet().stream()
+                .filter(key -> map.get(key).size() > 1)
+                .flatMap(key -> map.get(key).stream())
+                .distinct()
+                .sorted(conflictComparator)
+                .toList();
+        if (conflicting.isEmpty()) {
+          break;
+        }
+        resolvedInteractions.remove(conflicting.get(0));
+      }
+    }
+    return resolvedInteractions;
+  }
+}